@@ -22,10 +22,16 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.*;
 import java.util.concurrent.*;
 import javax.sql.*;
+import org.apache.camel.Route;
 import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.file.FileEndpoint;
+import org.apache.camel.component.file.GenericFileEndpoint;
+import org.apache.camel.component.seda.SedaEndpoint;
 import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.log4j.LogManager;
 import org.h2.jdbcx.JdbcConnectionPool;
 import org.restlet.resource.ClientResource;
 import org.slf4j.Logger;
@@ -39,35 +45,65 @@ import static java.lang.String.format;
 import static java.lang.System.exit;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.createTempDirectory;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
 import static java.util.concurrent.TimeUnit.*;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @SuppressWarnings("Guava")
 public abstract class AbstractExercise implements Runnable {
+    private static final long PROCESSING_TIMEOUT = 60;
+    private static final long METRICS_PERIOD = 10;
+
+    static {
+        // The log events are dispatched asynchronously, flush the pending ones when the JVM stops
+        Runtime.getRuntime().addShutdownHook(new Thread(LogManager::shutdown, "LogManagerShutdown"));
+    }
+
     private final Logger log = getLogger(getClass());
 
     private final Supplier<Path> workingDirectory = memoize(this::createWorkingDirectory);
     private final Supplier<JdbcConnectionPool> database = memoize(this::createDatabase);
+    private final Metrics metrics = new Metrics();
+    private final DataSource timedDatabase = new TimedDataSource(database, metrics);
 
     /**
      * Starts the exercise
      */
     @Override
     public final void run() {
+        long start = System.nanoTime();
         log.info("Welcome to the " + getClass().getSimpleName() + ".");
+        time("workingDirectory", this::getWorkingDirectory);
         log.info("You working directory is " + getWorkingDirectory());
 
-        final Simulator simulator = new Simulator(getWorkingDirectory());
-        final ConcurrentMap<String, Object> registry = new ConcurrentHashMap<>();
-        final DefaultCamelContext context = new DefaultCamelContext(new MapBasedRegistry(registry));
+        if (isDatabaseUsed()) {
+            // The routes only need the database once they are started, it's initialized in the meantime
+            Thread initializer = new Thread(() -> time("database", database::get), "DatabaseInitializer");
+            initializer.setDaemon(true);
+            initializer.start();
+        }
 
-        configureCamel(context, registry);
+        final Simulator simulator = new Simulator(getWorkingDirectory());
+        final CompletionTracker tracker = new CompletionTracker();
+        final MapBasedRegistry registry = new MapBasedRegistry(new ConcurrentHashMap<>());
+        final DefaultCamelContext context = time("routes", () -> {
+            DefaultCamelContext result = new DefaultCamelContext(registry);
+            result.getManagementStrategy().addEventNotifier(tracker);
+            configureMetrics(result, registry);
+            configureCamel(result, registry.asMap());
+            return result;
+        });
 
-        Future<Void> simulation = startExercise(context, simulator);
+        Future<Integer> simulation = time("context", () -> startExercise(context, simulator));
+        long startup = System.nanoTime() - start;
+        metrics.timer("startup.total").record(startup);
+        log.info(format("Started in %d ms (%s)", NANOSECONDS.toMillis(startup), getStartupTimes()));
 
-        waitForSimulationToComplete(simulation);
+        int files = waitForSimulationToComplete(simulation);
+        simulator.shutdown();
 
-        waitForCamelProcessing();
+        waitForCamelProcessing(context, tracker, files);
 
         if (isDatabaseUsed()) {
             displayDatabaseContent();
@@ -78,7 +114,7 @@ public abstract class AbstractExercise implements Runnable {
         }
 
         log.info("Exercise complete, stopping the platform.");
-        System.exit(0);
+        stopCamel(context);
     }
 
     /**
@@ -118,17 +154,84 @@ public abstract class AbstractExercise implements Runnable {
             return null;
         }
 
-        return database.get();
+        return timedDatabase;
     }
 
     /**
-     * Configures the Camel routes and the registry
+     * Gets the metrics of the exercise. The routes, the processors, the splitters, the database and the registry are
+     * already measured, the exercise can add its own metrics.
+     *
+     * @return Metrics
+     */
+    protected final Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Configures the metrics collection. The metrics are exported with JMX and logged periodically while the context
+     * is started.
+     *
+     * @param context Camel context to measure
+     * @param registry Registry to measure
+     */
+    private void configureMetrics(DefaultCamelContext context, MapBasedRegistry registry) {
+        try {
+            context.addInterceptStrategy(new MetricsInterceptStrategy(metrics));
+            context.getManagementStrategy().addEventNotifier(new MetricsEventNotifier(metrics));
+            context.addService(new MetricsReporter(metrics, getClass().getSimpleName(), METRICS_PERIOD, SECONDS));
+        } catch (Exception e) {
+            handleFatalError("Cannot configure the metrics.", e);
+        }
+
+        context.addRegisterEndpointCallback((uri, endpoint) -> {
+            if (endpoint instanceof SedaEndpoint) {
+                SedaEndpoint seda = (SedaEndpoint) endpoint;
+                String name = "stage." + getStageName(seda);
+                metrics.gauge(name + ".size", seda::getCurrentQueueSize);
+                metrics.gauge(name + ".remaining", () -> seda.getQueue().remainingCapacity());
+            }
+            return endpoint;
+        });
+
+        metrics.gauge("registry.nameLookups", registry::getNameLookups);
+        metrics.gauge("registry.typeLookups", registry::getTypeLookups);
+        if (isDatabaseUsed()) {
+            // The H2 pool doesn't expose its idle connections, only the active ones and its maximum size
+            metrics.gauge("database.active", () -> database.get().getActiveConnections());
+            metrics.gauge("database.available",
+                    () -> database.get().getMaxConnections() - database.get().getActiveConnections());
+        }
+    }
+
+    private static String getStageName(SedaEndpoint endpoint) {
+        String uri = endpoint.getEndpointUri();
+        String name = uri.substring(uri.indexOf(':') + 1).replaceFirst("^//", "");
+        return name.contains("?") ? name.substring(0, name.indexOf('?')) : name;
+    }
+
+    /**
+     * Configures the Camel routes, the registry and the thread pools
      *
      * @param context Camel context to configure
      * @param registry Registry to configure
      */
     private void configureCamel(DefaultCamelContext context, ConcurrentMap<String, Object> registry) {
         try {
+            if (getClass().getAnnotation(WithVirtualThreads.class) != null) {
+                configureVirtualThreads(context);
+            }
+
+            WithSplitThreadPool pool = getClass().getAnnotation(WithSplitThreadPool.class);
+            if (pool != null) {
+                context.getExecutorServiceManager()
+                        .registerThreadPoolProfile(SplitThreadPool.profile(pool.threads(), pool.queueSize()));
+            }
+
+            WithWatchService watch = getClass().getAnnotation(WithWatchService.class);
+            if (watch != null) {
+                configureWatchService(context, watch);
+            }
+
             configureRegistry(registry);
             context.addRoutes(configureCamelRoutes());
         } catch (Exception e) {
@@ -137,67 +240,204 @@ public abstract class AbstractExercise implements Runnable {
     }
 
     /**
-     * Starts the exercise. It starts the context and the simulator.
+     * Runs the tasks of the Camel thread pool profiles in virtual threads, if they are available.
+     *
+     * @param context Camel context to configure
+     */
+    private void configureVirtualThreads(DefaultCamelContext context) {
+        if (VirtualThreads.isAvailable()) {
+            context.getExecutorServiceManager().setThreadPoolFactory(VirtualThreads.threadPoolFactory());
+            log.info("The Camel thread pool profiles use virtual threads.");
+        } else {
+            log.warn("The virtual threads require Java 21 and the virtual-threads profile, using platform threads.");
+        }
+    }
+
+    /**
+     * Triggers the file consumers of the working directory with a watch service instead of polling.
+     *
+     * @param context Camel context to configure
+     * @param watch Configuration of the watch service
+     */
+    private void configureWatchService(DefaultCamelContext context, WithWatchService watch) {
+        File directory = getWorkingDirectory().toFile();
+        context.addRegisterEndpointCallback((uri, endpoint) -> {
+            if (endpoint instanceof FileEndpoint && directory.equals(((FileEndpoint) endpoint).getFile())) {
+                // The endpoint is already configured, the scheduler is given to its consumer like a URI option
+                FileEndpoint file = (FileEndpoint) endpoint;
+                Map<String, Object> properties = new HashMap<>();
+                if (file.getConsumerProperties() != null) {
+                    properties.putAll(file.getConsumerProperties());
+                }
+                properties.put("scheduler", new WatchServiceScheduler(watch.scanInterval(), MILLISECONDS));
+                file.setConsumerProperties(properties);
+            }
+            return endpoint;
+        });
+    }
+
+    /**
+     * Starts the exercise. It starts the simulator and then the context, the files generated while the context is
+     * starting are consumed once the routes are started.
      *
      * @param context Context to start
      * @param simulator Simulator to start
      * @return A future of the simulation task
      */
-    private Future<Void> startExercise(DefaultCamelContext context, Simulator simulator) {
+    private Future<Integer> startExercise(DefaultCamelContext context, Simulator simulator) {
+        WithLoad load = getClass().getAnnotation(WithLoad.class);
+        Future<Integer> simulation = load != null ? simulator.generate(load) : simulator.generate(2, SECONDS);
         try {
             context.start();
         } catch (Exception e) {
             handleFatalError("Cannot start the Camel context.", e);
         }
-        return simulator.generate(2, SECONDS);
+        return simulation;
+    }
+
+    /**
+     * Runs a startup phase and records its duration in the {@code startup.<phase>} timer.
+     *
+     * @param phase Name of the phase
+     * @param step Step of the phase
+     * @param <T> Type of the result of the phase
+     * @return Result of the phase
+     */
+    private <T> T time(String phase, Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            metrics.timer("startup." + phase).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gets the durations of the startup phases completed so far.
+     *
+     * @return Description of the startup phases
+     */
+    private String getStartupTimes() {
+        StringBuilder builder = new StringBuilder();
+        for (String phase : new String[]{"workingDirectory", "database", "routes", "context"}) {
+            Histogram timer = metrics.timer("startup." + phase);
+            if (timer.getCount() > 0) {
+                builder.append(builder.length() == 0 ? "" : ", ").append(phase).append('=')
+                        .append(NANOSECONDS.toMillis(timer.getMax())).append(" ms");
+            }
+        }
+        return builder.toString();
     }
 
     /**
      * Waits for the simulation task to complete
      *
      * @param simulation Simulation task to wait for
+     * @return Number of simulated files
      */
-    private void waitForSimulationToComplete(Future<Void> simulation) {
+    private int waitForSimulationToComplete(Future<Integer> simulation) {
         try {
-            simulation.get();
+            return simulation.get();
         } catch (InterruptedException e) {
             // Propagate interruption
             Thread.currentThread().interrupt();
         } catch (ExecutionException e) {
             handleFatalError("Something went wrong during the simulation.", e.getCause());
         }
+        return 0;
     }
 
     /**
-     * Wait 5 seconds in order to ensure that camel has processed everything
+     * Waits until camel has processed all the simulated files and then stops the file routes and the {@link Stage}
+     * routes, in the order of their definition. The routes are stopped gracefully, so the in-flight exchanges, the
+     * queued messages and the pending aggregations are completed before returning.
+     * <p/>
+     * Only the exercises consuming the simulated files with a file route are supported. A file is processed once the
+     * exchange of its file consumer is complete, which includes the stages it is sent to with {@code inOut}, but the
+     * work handed over to other routes isn't tracked. The exercises without a file route are not waited for.
+     *
+     * @param context Camel context
+     * @param tracker Tracker of the completed exchanges
+     * @param files Number of simulated files
      */
-    private void waitForCamelProcessing() {
+    private void waitForCamelProcessing(DefaultCamelContext context, CompletionTracker tracker, int files) {
         try {
-            SECONDS.sleep(5);
+            if (!hasFileRoute(context)) {
+                if (!context.getRoutes().isEmpty()) {
+                    log.warn("The routes don't consume the simulated files, their processing is not waited for.");
+                }
+            } else if (!tracker.awaitFiles(files, PROCESSING_TIMEOUT, SECONDS)) {
+                log.warn("Camel hasn't processed all the files after " + PROCESSING_TIMEOUT + " seconds.");
+            }
+            for (Route route : context.getRoutes()) {
+                if (route.getEndpoint() instanceof GenericFileEndpoint) {
+                    context.stopRoute(route.getId());
+                }
+            }
+            for (Route route : context.getRoutes()) {
+                if (route.getEndpoint() instanceof SedaEndpoint) {
+                    context.stopRoute(route.getId());
+                }
+            }
         } catch (InterruptedException e) {
             // Propagate interruption
             Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            handleFatalError("Cannot stop the file routes.", e);
+        }
+
+        for (Map.Entry<String, Long> entry : tracker.getCompletedExchanges().entrySet()) {
+            log.info(format("Route %s completed %d exchanges.", entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private static boolean hasFileRoute(DefaultCamelContext context) {
+        for (Route route : context.getRoutes()) {
+            if (route.getEndpoint() instanceof GenericFileEndpoint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops the Camel context gracefully.
+     *
+     * @param context Context to stop
+     */
+    private void stopCamel(DefaultCamelContext context) {
+        try {
+            context.stop();
+        } catch (Exception e) {
+            handleFatalError("Cannot stop the Camel context.", e);
         }
     }
 
     /**
-     * Displays the database content.
+     * Displays the database content. The rows are streamed and logged one at a time, so that large tables can be
+     * displayed without loading them in memory.
      */
     private void displayDatabaseContent() {
         checkState(getDatabase() != null, "There is no database to display");
-        try (Connection connection = getDatabase().getConnection()) {
-            try (Statement statement = connection.createStatement()) {
-                ResultSet resultSet = statement.executeQuery("SELECT YEAR, ACTOR, MOVIE FROM JAMES_BOND ORDER BY YEAR ASC");
-                if (!resultSet.next()) {
+        int fetchSize = getClass().getAnnotation(WithDatabase.class).fetchSize();
+        try (Connection connection = getDatabase().getConnection();
+             Statement statement = connection.createStatement(TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            String query = "SELECT YEAR, ACTOR, MOVIE FROM JAMES_BOND ORDER BY YEAR ASC";
+            try (ResultSet resultSet = statement.executeQuery(query)) {
+                long rows = 0;
+                while (resultSet.next()) {
+                    if (rows++ == 0) {
+                        log.info("Content of the database: ");
+                    }
+                    log.info("\tYear={}, Actor={}, Movie={}", resultSet.getInt(1), resultSet.getString(2),
+                            resultSet.getString(3));
+                }
+
+                if (rows == 0) {
                     log.error("The database is empty !");
                 } else {
-                    log.info("Content of the database: ");
-                    do {
-                        int year = resultSet.getInt("YEAR");
-                        String actor = resultSet.getString("ACTOR");
-                        String movie = resultSet.getString("MOVIE");
-                        log.info(format("\tYear=%d, Actor=%s, Movie=%s", year, actor, movie));
-                    } while (resultSet.next());
+                    log.info("{} rows in the database", rows);
                 }
             }
         } catch (SQLException e) {
@@ -240,7 +480,10 @@ public abstract class AbstractExercise implements Runnable {
      * @return Database
      */
     private JdbcConnectionPool createDatabase() {
-        JdbcConnectionPool db = JdbcConnectionPool.create("jdbc:h2:mem:test", "sa", "sa");
+        WithDatabase configuration = getClass().getAnnotation(WithDatabase.class);
+        JdbcConnectionPool db = JdbcConnectionPool.create(createDatabaseUrl(configuration), "sa", "sa");
+        db.setMaxConnections(configuration.maxConnections());
+        db.setLoginTimeout(configuration.loginTimeout());
         try (Connection connection = db.getConnection(); Statement statement = connection.createStatement()) {
             statement.execute(Resources.toString(AbstractExercise.class.getResource("database.sql"), UTF_8));
         } catch (SQLException | IOException e) {
@@ -249,6 +492,29 @@ public abstract class AbstractExercise implements Runnable {
         return db;
     }
 
+    /**
+     * Creates the URL of the database. A persistent database is stored with the MVStore engine in its own temporary
+     * directory, so that its files are not picked by the routes watching the working directory.
+     *
+     * @param configuration Configuration of the database
+     * @return JDBC URL
+     */
+    private String createDatabaseUrl(WithDatabase configuration) {
+        if (!configuration.persistent()) {
+            return "jdbc:h2:mem:test";
+        }
+
+        try {
+            Path directory = createTempDirectory(getClass().getSimpleName() + "Database");
+            log.info("The database is stored in " + directory);
+            return format("jdbc:h2:file:%s;MV_STORE=TRUE;CACHE_SIZE=%d", directory.resolve("test"),
+                    configuration.cacheSize());
+        } catch (IOException e) {
+            handleFatalError("Cannot create the database directory", e);
+            throw new RuntimeException(e);
+        }
+    }
+
     private boolean isWebServiceUsed() {
         return getClass().getAnnotation(WithWebService.class) != null;
     }
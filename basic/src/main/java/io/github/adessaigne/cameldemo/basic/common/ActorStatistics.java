@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.camel.Body;
+import org.apache.camel.Exchange;
+import org.apache.camel.Header;
+import org.apache.camel.Message;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.*;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Comparator.comparing;
+
+/**
+ * Running statistics of the actors (number of movies, first and last years, titles), maintained incrementally from
+ * the movies written into the database instead of being computed with a {@code GROUP BY} on every request.
+ * <p/>
+ * The movies are indexed by year like in the {@code JAMES_BOND} table, so a movie delivered again replaces the
+ * previous one, even when it moves to another actor. The year is updated atomically, and each actor under its own
+ * lock, so the batches of different years and actors don't wait for each other. The JSON answer of an actor is
+ * computed once per batch that changed it, and the answer for all the actors only joins them in the order of a sorted
+ * list that is copied when a new actor appears.
+ * <p/>
+ * The route inserting the movies must update the statistics with {@link #update(List)}, and the statistics are served
+ * as a bean:<pre>
+ * rest("/bond")
+ *         .get("actors").to("bean:actors?method=getAllStatistics")
+ *         .get("actors/{Actor}").to("bean:actors?method=getStatistics");
+ * </pre>
+ * The answer for an actor looks like:<pre>
+ * {"actor":"Sean Connery","movies":2,"firstYear":1962,"lastYear":1963,"titles":["Dr. No","From Russia with Love"]}
+ * </pre>
+ */
+public final class ActorStatistics {
+    private final ConcurrentMap<String, Actor> actors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> actorsByYear = new ConcurrentHashMap<>();
+    private volatile List<Actor> sortedActors = Collections.emptyList();
+
+    /**
+     * Gets the statistics of an actor.
+     *
+     * @param actor Name of the actor
+     * @return Statistics as JSON or {@code null} if the actor has no movie
+     */
+    public String getStatistics(@Header(ACTOR) String actor) {
+        checkNotNull(actor, "The actor must be defined");
+        Actor statistics = actors.get(actor);
+        return statistics != null ? statistics.json : null;
+    }
+
+    /**
+     * Gets the statistics of all the actors.
+     *
+     * @return JSON array of the statistics of the actors, sorted by name
+     */
+    public String getAllStatistics() {
+        StringBuilder json = new StringBuilder("[");
+        for (Actor actor : sortedActors) {
+            String statistics = actor.json;
+            if (statistics != null) {
+                json.append(json.length() > 1 ? "," : "").append(statistics);
+            }
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Updates the statistics with movies that have been written into the database.
+     *
+     * @param rows Exchanges of the written movies, with the {@link BondXml#YEAR}, {@link BondXml#ACTOR} and
+     * {@link BondXml#MOVIE} headers
+     */
+    public void update(@Body List<Exchange> rows) {
+        Set<Actor> changed = new HashSet<>();
+        for (Exchange row : rows) {
+            Message in = row.getIn();
+            add(in.getHeader(YEAR, Integer.class), in.getHeader(ACTOR, String.class), in.getHeader(MOVIE, String.class),
+                    changed);
+        }
+        publish(changed);
+    }
+
+    /**
+     * Updates the statistics with a movie that has been written into the database.
+     *
+     * @param year Year of the movie
+     * @param actor Name of the actor
+     * @param title Title of the movie
+     */
+    public void put(int year, String actor, String title) {
+        Set<Actor> changed = new HashSet<>();
+        add(year, actor, title, changed);
+        publish(changed);
+    }
+
+    private void add(Integer year, String actor, String title, Set<Actor> changed) {
+        checkArgument(year != null, "The movie %s has no year.", title);
+        checkArgument(actor != null, "The movie %s has no actor.", title);
+
+        Actor existing = actors.get(actor);
+        Actor statistics = existing != null ? existing : register(actor);
+        // The year is locked while it moves, so that it is never listed under two actors
+        actorsByYear.compute(year, (key, previous) -> {
+            if (previous != null && !previous.equals(actor)) {
+                Actor replaced = actors.get(previous);
+                if (replaced != null) {
+                    replaced.remove(year);
+                    changed.add(replaced);
+                }
+            }
+            statistics.put(year, title);
+            return actor;
+        });
+        changed.add(statistics);
+    }
+
+    private synchronized Actor register(String name) {
+        Actor actor = actors.get(name);
+        if (actor == null) {
+            actor = new Actor(name);
+            actors.put(name, actor);
+
+            // The sorted list only changes with the set of actors, not with their movies
+            List<Actor> sorted = new ArrayList<>(sortedActors);
+            sorted.add(actor);
+            sorted.sort(comparing(Actor::getName));
+            sortedActors = unmodifiableList(sorted);
+        }
+        return actor;
+    }
+
+    private void publish(Set<Actor> changed) {
+        for (Actor actor : changed) {
+            actor.publish();
+        }
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static final class Actor {
+        private final String name;
+        private final NavigableMap<Integer, String> titles = new TreeMap<>();
+        private volatile String json;
+
+        private Actor(String name) {
+            this.name = name;
+        }
+
+        private String getName() {
+            return name;
+        }
+
+        private synchronized void put(int year, String title) {
+            titles.put(year, title);
+        }
+
+        private synchronized void remove(int year) {
+            titles.remove(year);
+        }
+
+        private synchronized void publish() {
+            if (titles.isEmpty()) {
+                json = null;
+                return;
+            }
+
+            StringBuilder result = new StringBuilder("{\"actor\":").append(quote(name))
+                    .append(",\"movies\":").append(titles.size())
+                    .append(",\"firstYear\":").append(titles.firstKey())
+                    .append(",\"lastYear\":").append(titles.lastKey())
+                    .append(",\"titles\":[");
+            boolean first = true;
+            for (String title : titles.values()) {
+                result.append(first ? "" : ",").append(quote(title));
+                first = false;
+            }
+            json = result.append("]}").toString();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import javax.sql.*;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+import org.slf4j.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.*;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Inserts a group of movies into the {@code JAMES_BOND} table using a single JDBC batch and a single transaction.
+ * <p/>
+ * In merge mode the rows are written with {@code MERGE INTO ... KEY (YEAR)}, so a movie delivered again replaces the
+ * existing row instead of failing the whole batch on the primary key.
+ * <p/>
+ * The body is either a {@link MovieTable}, giving one row per row of the table, or the list of exchanges of an
+ * aggregator or a splitter using the {@link org.apache.camel.processor.aggregate.GroupedExchangeAggregationStrategy},
+ * each grouped exchange giving one row from its {@link BondXml#YEAR}, {@link BondXml#ACTOR} and {@link BondXml#MOVIE}
+ * headers:<pre>
+ * from("file:" + getWorkingDirectory())
+ *         .split(movies()).streaming()
+ *         .aggregate(constant(true), new GroupedExchangeAggregationStrategy())
+ *         .completionSize(100).completionTimeout(500).forceCompletionOnStop()
+ *         .process(new BatchInsert(getDatabase()));
+ * </pre>
+ */
+public final class BatchInsert implements Processor {
+    private static final Logger LOG = getLogger(BatchInsert.class);
+    private static final String INSERT = "INSERT INTO JAMES_BOND (YEAR, ACTOR, MOVIE) VALUES (?, ?, ?)";
+    private static final String MERGE = "MERGE INTO JAMES_BOND (YEAR, ACTOR, MOVIE) KEY (YEAR) VALUES (?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final String sql;
+
+    /**
+     * Creates a new batch insert.
+     *
+     * @param dataSource Database in which the rows are inserted
+     */
+    public BatchInsert(DataSource dataSource) {
+        this(dataSource, false);
+    }
+
+    /**
+     * Creates a new batch insert.
+     *
+     * @param dataSource Database in which the rows are inserted
+     * @param merge {@code true} to replace the existing rows with the same year instead of failing
+     */
+    public BatchInsert(DataSource dataSource, boolean merge) {
+        this.dataSource = checkNotNull(dataSource, "The data source must be defined.");
+        this.sql = merge ? MERGE : INSERT;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        Object body = exchange.getIn().getBody();
+        int rows;
+        if (body instanceof MovieTable) {
+            rows = insert((MovieTable) body);
+        } else {
+            @SuppressWarnings("unchecked")
+            List<Exchange> exchanges = exchange.getIn().getBody(List.class);
+            rows = insert(exchanges);
+        }
+        if (rows > 0) {
+            LOG.debug("Inserted {} rows in one batch", rows);
+        }
+    }
+
+    private int insert(MovieTable table) throws SQLException {
+        if (table.isEmpty()) {
+            return 0;
+        }
+        return execute(statement -> {
+            for (int row = 0; row < table.size(); row++) {
+                statement.setInt(1, table.getYear(row));
+                statement.setString(2, table.getActor(row));
+                statement.setString(3, table.getMovie(row));
+                statement.addBatch();
+            }
+            return table.size();
+        });
+    }
+
+    private int insert(List<Exchange> rows) throws SQLException {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        return execute(statement -> {
+            for (Exchange row : rows) {
+                Message in = row.getIn();
+                Integer year = in.getHeader(YEAR, Integer.class);
+                String movie = in.getHeader(MOVIE, String.class);
+                checkArgument(year != null, "The movie %s has no year.", movie);
+                statement.setInt(1, year);
+                statement.setString(2, in.getHeader(ACTOR, String.class));
+                statement.setString(3, movie);
+                statement.addBatch();
+            }
+            return rows.size();
+        });
+    }
+
+    private int execute(Batch batch) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int rows = batch.addRows(statement);
+                statement.executeBatch();
+                connection.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Batch {
+        int addRows(PreparedStatement statement) throws SQLException;
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.io.*;
+import java.util.*;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.InvalidPayloadException;
+import org.apache.camel.Message;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.component.file.GenericFile;
+import org.apache.camel.support.ExpressionAdapter;
+import org.apache.camel.util.IOHelper;
+
+import static java.lang.String.format;
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * Streaming expressions for the James Bond XML files.
+ * <p/>
+ * The files are read with a single StAX pass instead of being converted into a DOM {@link org.w3c.dom.Document} and
+ * queried with XPath. The actor is read first and then the movies are pulled one by one, so the memory used doesn't
+ * depend on the number of movies in the file.
+ * <p/>
+ * The files of at least {@value #MAPPING_THRESHOLD} bytes consumed from the file system are memory mapped and parsed
+ * straight from the mapped pages instead of being read through buffered streams, so the heap doesn't depend on the
+ * size of the file either.
+ * <p/>
+ * The {@link #movieTable()} expressions read the whole file into a columnar {@link MovieTable} instead of giving one
+ * message per movie, for the routes that write the movies in batches.
+ * <p/>
+ * Usage:<pre>
+ * from("file:" + getWorkingDirectory())
+ *         .split(movies()).streaming()
+ *         .log("${header.Actor} is James Bond in ${header.Movie}.");
+ * </pre>
+ */
+public final class BondXml {
+    public static final String ACTOR = "Actor";
+    public static final String YEAR = "Year";
+    public static final String MOVIE = "Movie";
+
+    /**
+     * Minimum size of the files to memory map, mapping a file costs more than reading it when it is small.
+     */
+    public static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+    // XMLInputFactory is thread safe once configured
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    // The same actors are found in many files
+    private static final StringDictionary NAMES = new StringDictionary(1024);
+
+    private BondXml() {
+        // Utility class
+    }
+
+    /**
+     * Creates an expression that reads the name of the actor. The parsing stops as soon as the name has been read.
+     *
+     * @return Expression evaluated as the actor name
+     */
+    public static Expression actor() {
+        return new ExpressionAdapter() {
+            @Override
+            public Object evaluate(Exchange exchange) {
+                try (MovieIterator iterator = new MovieIterator(exchange)) {
+                    return iterator.getActor();
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "bondActor()";
+            }
+        };
+    }
+
+    /**
+     * Creates an expression to be used with the splitter. It gives one message per movie with the {@link #ACTOR},
+     * {@link #YEAR} and {@link #MOVIE} headers already set. The headers of the file message are kept, they are shared
+     * by all the messages of the file instead of being copied into each of them.
+     *
+     * @return Expression evaluated as a closeable iterator of messages
+     */
+    public static Expression movies() {
+        return new ExpressionAdapter() {
+            @Override
+            public Object evaluate(Exchange exchange) {
+                return new MovieIterator(exchange);
+            }
+
+            @Override
+            public String toString() {
+                return "bondMovies()";
+            }
+        };
+    }
+
+    /**
+     * Creates an expression reading all the movies of the file into a {@link MovieTable} on the heap, in a single
+     * pass and without creating one message per movie.
+     *
+     * @return Expression evaluated as a {@link MovieTable}
+     */
+    public static Expression movieTable() {
+        return movieTable(false);
+    }
+
+    /**
+     * Creates an expression reading all the movies of the file into a {@link MovieTable}, in a single pass and without
+     * creating one message per movie.
+     *
+     * @param offHeap {@code true} to allocate the columns of the table in direct buffers
+     * @return Expression evaluated as a {@link MovieTable}
+     */
+    public static Expression movieTable(boolean offHeap) {
+        return new ExpressionAdapter() {
+            @Override
+            public Object evaluate(Exchange exchange) {
+                MovieTable table = new MovieTable(64, offHeap);
+                try (MovieIterator iterator = new MovieIterator(exchange)) {
+                    iterator.readInto(table);
+                }
+                return table;
+            }
+
+            @Override
+            public String toString() {
+                return "bondMovieTable(" + offHeap + ")";
+            }
+        };
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static final class MovieIterator implements Iterator<Message>, Closeable {
+        private final Map<String, Object> headers;
+        private final InputStream input;
+        private final XMLStreamReader reader;
+        private Map<String, Object> sharedHeaders;
+        private String actor;
+        private int year;
+        private String yearText;
+        private String title;
+        private Message next;
+        private boolean closed;
+
+        private MovieIterator(Exchange exchange) {
+            Message in = exchange.getIn();
+            this.headers = in.getHeaders();
+            try {
+                this.input = openInput(in);
+                this.reader = FACTORY.createXMLStreamReader(input);
+            } catch (InvalidPayloadException | XMLStreamException | IOException e) {
+                close();
+                throw new RuntimeCamelException("Cannot read the James Bond file", e);
+            }
+        }
+
+        private static InputStream openInput(Message in) throws InvalidPayloadException, IOException {
+            Object body = in.getBody();
+            if (body instanceof GenericFile) {
+                body = ((GenericFile<?>) body).getFile();
+            }
+            if (body instanceof File && ((File) body).length() >= MAPPING_THRESHOLD) {
+                return new MappedFileInputStream(((File) body).toPath());
+            }
+            return in.getMandatoryBody(InputStream.class);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !closed && readNextMovie()) {
+                next = createMessage();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Message next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Message result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Ignore, the stream is closed below anyway
+                }
+            }
+            IOHelper.close(input);
+        }
+
+        private String getActor() {
+            try {
+                while (actor == null && reader.hasNext()) {
+                    if (reader.next() == START_ELEMENT && "actor".equals(reader.getLocalName())) {
+                        readActor();
+                    }
+                }
+                return actor;
+            } catch (XMLStreamException e) {
+                throw new RuntimeCamelException("Cannot read the James Bond actor", e);
+            }
+        }
+
+        private void readActor() throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == START_ELEMENT && "name".equals(reader.getLocalName())) {
+                    actor = NAMES.intern(reader.getElementText().trim());
+                } else if (event == END_ELEMENT && "actor".equals(reader.getLocalName())) {
+                    return;
+                }
+            }
+        }
+
+        private void readInto(MovieTable table) {
+            while (readNextMovie()) {
+                if (yearText == null) {
+                    throw new RuntimeCamelException("The movie " + title + " has no year");
+                }
+                table.add(year, actor, title);
+            }
+        }
+
+        private boolean readNextMovie() {
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == START_ELEMENT) {
+                        switch (reader.getLocalName()) {
+                            case "actor":
+                                readActor();
+                                break;
+                            case "movie":
+                                yearText = reader.getAttributeValue(null, "year");
+                                title = null;
+                                break;
+                            case "title":
+                                title = reader.getElementText().trim();
+                                break;
+                            default:
+                                break;
+                        }
+                    } else if (event == END_ELEMENT && "movie".equals(reader.getLocalName())) {
+                        year = parseYear();
+                        return true;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                throw new RuntimeCamelException("Cannot read the James Bond movies", e);
+            }
+
+            close();
+            return false;
+        }
+
+        private int parseYear() {
+            try {
+                return yearText != null ? Integer.parseInt(yearText.trim()) : 0;
+            } catch (NumberFormatException e) {
+                throw new RuntimeCamelException(format("The year %s of the movie %s in the file %s is not a number.",
+                        yearText, title, headers.get(Exchange.FILE_NAME)), e);
+            }
+        }
+
+        private Message createMessage() {
+            if (sharedHeaders == null) {
+                sharedHeaders = SharedHeadersMessage.snapshot(headers);
+            }
+            Message message = new SharedHeadersMessage(sharedHeaders);
+            message.setHeader(ACTOR, actor);
+            message.setHeader(YEAR, yearText != null ? year : null);
+            message.setHeader(MOVIE, title);
+            return message;
+        }
+    }
+}
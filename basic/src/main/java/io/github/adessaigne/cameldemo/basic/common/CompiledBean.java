@@ -0,0 +1,286 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.util.*;
+import org.apache.camel.Body;
+import org.apache.camel.CamelContext;
+import org.apache.camel.CamelContextAware;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangeProperty;
+import org.apache.camel.Header;
+import org.apache.camel.Headers;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+import org.apache.camel.support.ServiceSupport;
+import com.google.common.primitives.Primitives;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagateIfPossible;
+
+/**
+ * Calls a method of a bean without reflection, a replacement of the bean EIP for the beans called at a high rate.
+ * <p/>
+ * The method and the binding of its parameters are resolved once when the route starts, then the method is called
+ * through an invoker generated with the {@link LambdaMetafactory}, so each call costs about as much as a direct Java
+ * call. The parameters are bound like with the bean EIP: {@link Header}, {@link Headers}, {@link ExchangeProperty} and
+ * {@link Body} annotations, {@link Exchange}, {@link Message} and {@link CamelContext} types, the body otherwise. The
+ * result of the method becomes the body of the message:<pre>
+ * from("file:" + getWorkingDirectory())
+ *         .split(movies()).streaming()
+ *         .process(new CompiledBean("bean", "transform"))
+ * </pre>
+ * The method must not be overloaded. The invokers are generated once per method and shared by all the routes.
+ */
+public final class CompiledBean extends ServiceSupport implements Processor, CamelContextAware {
+    private static final ClassValue<Map<Method, Object>> INVOKERS = new ClassValue<Map<Method, Object>>() {
+        @Override
+        protected Map<Method, Object> computeValue(Class<?> type) {
+            return Collections.synchronizedMap(new HashMap<>());
+        }
+    };
+
+    private final String name;
+    private final String methodName;
+    private CamelContext camelContext;
+    private Object bean;
+    private Call call;
+
+    /**
+     * Creates a processor calling a bean of the registry.
+     *
+     * @param name Name of the bean in the registry
+     * @param method Name of the method to call
+     */
+    public CompiledBean(String name, String method) {
+        this.name = checkNotNull(name, "The bean name must be defined.");
+        this.methodName = checkNotNull(method, "The method name must be defined.");
+    }
+
+    /**
+     * Creates a processor calling a bean.
+     *
+     * @param bean Bean to call
+     * @param method Name of the method to call
+     */
+    public CompiledBean(Object bean, String method) {
+        this.bean = checkNotNull(bean, "The bean must be defined.");
+        this.name = null;
+        this.methodName = checkNotNull(method, "The method name must be defined.");
+    }
+
+    @Override
+    public CamelContext getCamelContext() {
+        return camelContext;
+    }
+
+    @Override
+    public void setCamelContext(CamelContext camelContext) {
+        this.camelContext = camelContext;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        try {
+            exchange.getIn().setBody(call.invoke(exchange));
+        } catch (Throwable e) {
+            propagateIfPossible(e, Exception.class);
+            throw new IllegalStateException("Cannot call " + this, e);
+        }
+    }
+
+    /**
+     * Resolves the bean, its method and the binding of its parameters.
+     *
+     * @throws Exception If the method cannot be resolved
+     */
+    @Override
+    protected void doStart() throws Exception {
+        if (name != null) {
+            checkNotNull(camelContext, "The Camel context of %s must be defined.", this);
+            bean = checkNotNull(camelContext.getRegistry().lookupByName(name), "No bean named %s in the registry.",
+                    name);
+        }
+
+        Method method = findMethod(bean.getClass(), methodName);
+        Parameter[] parameters = new Parameter[method.getParameterCount()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = createParameter(method.getParameterTypes()[i], method.getParameterAnnotations()[i]);
+        }
+
+        try {
+            call = createCall(bean, method, parameters);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot compile " + this, e);
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        call = null;
+        if (name != null) {
+            bean = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledBean[" + (name != null ? name : bean) + "." + methodName + "]";
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        Method result = null;
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && !method.isBridge()) {
+                checkArgument(result == null, "The method %s of %s is overloaded.", name, type.getName());
+                result = method;
+            }
+        }
+        checkArgument(result != null, "No public method %s in %s.", name, type.getName());
+        checkArgument(result.getReturnType() != void.class, "The method %s of %s doesn't return a value.", name,
+                type.getName());
+        return result;
+    }
+
+    private static Parameter createParameter(Class<?> rawType, Annotation[] annotations) {
+        Class<?> type = Primitives.wrap(rawType);
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Header) {
+                String header = ((Header) annotation).value();
+                return exchange -> exchange.getIn().getHeader(header, type);
+            } else if (annotation instanceof ExchangeProperty) {
+                String property = ((ExchangeProperty) annotation).value();
+                return exchange -> exchange.getProperty(property, type);
+            } else if (annotation instanceof Headers) {
+                return exchange -> exchange.getIn().getHeaders();
+            } else if (annotation instanceof Body) {
+                return exchange -> exchange.getIn().getBody(type);
+            }
+        }
+
+        if (Exchange.class.equals(type)) {
+            return exchange -> exchange;
+        } else if (Message.class.equals(type)) {
+            return Exchange::getIn;
+        } else if (CamelContext.class.equals(type)) {
+            return Exchange::getContext;
+        }
+        return exchange -> exchange.getIn().getBody(type);
+    }
+
+    private static Call createCall(Object bean, Method method, Parameter[] parameters) throws Throwable {
+        Object invoker = INVOKERS.get(bean.getClass()).get(method);
+        if (invoker == null) {
+            invoker = createInvoker(method);
+            INVOKERS.get(bean.getClass()).put(method, invoker);
+        }
+
+        switch (parameters.length) {
+            case 0: {
+                Invoker0 target = (Invoker0) invoker;
+                return exchange -> target.invoke(bean);
+            }
+            case 1: {
+                Invoker1 target = (Invoker1) invoker;
+                Parameter p0 = parameters[0];
+                return exchange -> target.invoke(bean, p0.get(exchange));
+            }
+            case 2: {
+                Invoker2 target = (Invoker2) invoker;
+                Parameter p0 = parameters[0];
+                Parameter p1 = parameters[1];
+                return exchange -> target.invoke(bean, p0.get(exchange), p1.get(exchange));
+            }
+            case 3: {
+                Invoker3 target = (Invoker3) invoker;
+                Parameter p0 = parameters[0];
+                Parameter p1 = parameters[1];
+                Parameter p2 = parameters[2];
+                return exchange -> target.invoke(bean, p0.get(exchange), p1.get(exchange), p2.get(exchange));
+            }
+            default: {
+                MethodHandle target = (MethodHandle) invoker;
+                return exchange -> {
+                    Object[] arguments = new Object[parameters.length + 1];
+                    arguments[0] = bean;
+                    for (int i = 0; i < parameters.length; i++) {
+                        arguments[i + 1] = parameters[i].get(exchange);
+                    }
+                    return target.invokeWithArguments(arguments);
+                };
+            }
+        }
+    }
+
+    /**
+     * Creates the invoker of a method. The methods with up to 3 parameters are called through a generated
+     * implementation of the invoker interface of their arity, the others through a method handle.
+     *
+     * @param method Method to invoke
+     * @return Invoker
+     * @throws Throwable If the invoker cannot be generated
+     */
+    private static Object createInvoker(Method method) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        method.setAccessible(true);
+        MethodHandle target = lookup.unreflect(method);
+        int arity = method.getParameterCount();
+        if (arity > 3) {
+            return target;
+        }
+
+        Class<?> type = arity == 0 ? Invoker0.class : arity == 1 ? Invoker1.class : arity == 2 ? Invoker2.class
+                : Invoker3.class;
+        CallSite site = LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(type),
+                MethodType.genericMethodType(arity + 1), target, target.type().wrap());
+        return site.getTarget().invoke();
+    }
+
+    @FunctionalInterface
+    private interface Parameter {
+        Object get(Exchange exchange);
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        Object invoke(Exchange exchange) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface Invoker0 {
+        Object invoke(Object bean);
+    }
+
+    @FunctionalInterface
+    private interface Invoker1 {
+        Object invoke(Object bean, Object p0);
+    }
+
+    @FunctionalInterface
+    private interface Invoker2 {
+        Object invoke(Object bean, Object p0, Object p1);
+    }
+
+    @FunctionalInterface
+    private interface Invoker3 {
+        Object invoke(Object bean, Object p0, Object p1, Object p2);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.camel.Exchange;
+import org.apache.camel.component.file.FileComponent;
+import org.apache.camel.management.event.AbstractExchangeEvent;
+import org.apache.camel.management.event.ExchangeCompletedEvent;
+import org.apache.camel.management.event.ExchangeFailedEvent;
+import org.apache.camel.support.EventNotifierSupport;
+import com.google.common.collect.ImmutableMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Tracks the exchanges completed by the Camel routes.
+ * <p/>
+ * Only the exchanges created by the route consumers are counted, the ones created by the EIPs (splitter, aggregator,
+ * ...) are part of their parent exchange. The exchanges created by a file consumer are also counted separately so
+ * that it is possible to wait until all the simulated files have been processed.
+ */
+final class CompletionTracker extends EventNotifierSupport {
+    private final Semaphore files = new Semaphore(0);
+    private final ConcurrentMap<String, AtomicLong> routes = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isEnabled(EventObject event) {
+        return event instanceof ExchangeCompletedEvent || event instanceof ExchangeFailedEvent;
+    }
+
+    @Override
+    public void notify(EventObject event) throws Exception {
+        Exchange exchange = ((AbstractExchangeEvent) event).getExchange();
+        if (!isRoot(exchange)) {
+            return;
+        }
+
+        String routeId = exchange.getFromRouteId();
+        if (routeId != null) {
+            routes.computeIfAbsent(routeId, id -> new AtomicLong()).incrementAndGet();
+        }
+        if (exchange.getProperty(FileComponent.FILE_EXCHANGE_FILE) != null) {
+            files.release();
+        }
+    }
+
+    /**
+     * Indicates whether the exchange has been created by a route consumer rather than copied by an EIP.
+     *
+     * @param exchange Exchange to check
+     * @return {@code true} if the exchange has been created by a route consumer
+     */
+    static boolean isRoot(Exchange exchange) {
+        // The EIP copies are correlated to their parent. The parent can also hold its own id as correlation id once
+        // the results of the copies have been aggregated into it.
+        String correlationId = exchange.getProperty(Exchange.CORRELATION_ID, String.class);
+        return correlationId == null || correlationId.equals(exchange.getExchangeId());
+    }
+
+    /**
+     * Waits until the given number of files have been processed by the file consumers.
+     *
+     * @param count Number of files to wait for
+     * @param timeout Maximum time to wait
+     * @param unit Time unit of the timeout
+     * @return {@code true} if the files have been processed, {@code false} if the timeout has been reached
+     * @throws InterruptedException If the current thread is interrupted
+     */
+    boolean awaitFiles(int count, long timeout, TimeUnit unit) throws InterruptedException {
+        checkArgument(count >= 0, "The number of files must be positive (%s).", count);
+        return files.tryAcquire(count, timeout, unit);
+    }
+
+    /**
+     * Gets the number of exchanges completed by each route.
+     *
+     * @return Number of completed exchanges by route identifier
+     */
+    Map<String, Long> getCompletedExchanges() {
+        ImmutableMap.Builder<String, Long> result = ImmutableMap.builder();
+        for (Map.Entry<String, AtomicLong> entry : routes.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result.build();
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.ServiceSupport;
+import org.slf4j.Logger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static com.google.common.base.Preconditions.*;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.*;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Appends the message bodies (usually marshalled CSV lines) to files, keeping one buffered channel open per file.
+ * <p/>
+ * The buffer of a file is written when it is full, periodically and when the route is stopped. When a file would
+ * exceed its maximum size, it is closed and renamed with an increasing suffix ({@code 007.csv.1}, {@code 007.csv.2},
+ * ...) and a new file is started. The files are only rolled between two messages, so a message is never split across
+ * two files.
+ * <p/>
+ * The messages are written in the default file unless they have a {@link #FILE_NAME} header, in which case they are
+ * written in the file of that name in the same directory. The header is rejected if it names a file in another
+ * directory:<pre>
+ * .marshal(new CsvDataFormat())
+ * .process(new CsvFileWriter(Paths.get("007.csv")));
+ * </pre>
+ */
+public final class CsvFileWriter extends ServiceSupport implements Processor {
+    public static final String FILE_NAME = "CsvFileName";
+
+    private static final Logger LOG = getLogger(CsvFileWriter.class);
+    private static final long STOP_TIMEOUT = 30;
+
+    private final Path directory;
+    private final String defaultFileName;
+    private final int bufferSize;
+    private final long maxFileSize;
+    private final long flushInterval;
+    private final Map<Path, Target> targets = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a new writer with a 64 KB buffer, flushed every second, and 64 MB files.
+     *
+     * @param file Default file
+     */
+    public CsvFileWriter(Path file) {
+        this(file, 64 * 1024, 64 * 1024 * 1024, 1, SECONDS);
+    }
+
+    /**
+     * Creates a new writer.
+     *
+     * @param file Default file
+     * @param bufferSize Size of the buffer of each file, in bytes
+     * @param maxFileSize Size after which a file is rolled, in bytes
+     * @param flushInterval Maximum time during which the data can stay in a buffer
+     * @param unit Time unit of the flush interval
+     */
+    public CsvFileWriter(Path file, int bufferSize, long maxFileSize, long flushInterval, TimeUnit unit) {
+        checkNotNull(file, "The file must be defined.");
+        checkArgument(bufferSize > 0, "The buffer size must be positive (%s).", bufferSize);
+        checkArgument(maxFileSize > 0, "The maximum file size must be positive (%s).", maxFileSize);
+        checkArgument(flushInterval > 0, "The flush interval must be positive (%s).", flushInterval);
+        checkNotNull(unit, "The time unit must be defined");
+
+        Path absolute = file.toAbsolutePath().normalize();
+        this.directory = absolute.getParent();
+        this.defaultFileName = absolute.getFileName().toString();
+        this.bufferSize = bufferSize;
+        this.maxFileSize = maxFileSize;
+        this.flushInterval = unit.toMillis(flushInterval);
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        byte[] data = exchange.getIn().getMandatoryBody(byte[].class);
+        Path path = resolve(exchange.getIn().getHeader(FILE_NAME, defaultFileName, String.class));
+        synchronized (targets) {
+            Target target = targets.get(path);
+            if (target == null) {
+                target = new Target(path);
+                targets.put(path, target);
+            }
+            target.write(data);
+        }
+    }
+
+    private Path resolve(String fileName) {
+        Path path = directory.resolve(fileName).normalize();
+        checkArgument(directory.equals(path.getParent()), "The file %s is not in the directory %s.", fileName,
+                directory);
+        return path;
+    }
+
+    /**
+     * Writes the buffered data of all the files.
+     *
+     * @throws IOException If the data cannot be written
+     */
+    public void flush() throws IOException {
+        synchronized (targets) {
+            for (Target target : targets.values()) {
+                target.flush();
+            }
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        scheduler = newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("CsvFileWriter").setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                LOG.error("Cannot flush the CSV files", e);
+            }
+        }, flushInterval, flushInterval, MILLISECONDS);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        // Interrupting a flush would close its channel, the current flush is completed instead
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(STOP_TIMEOUT, SECONDS)) {
+            LOG.warn("The CSV files are still being flushed after " + STOP_TIMEOUT + " seconds.");
+        }
+        synchronized (targets) {
+            for (Target target : targets.values()) {
+                target.close();
+            }
+            targets.clear();
+        }
+    }
+
+    private final class Target {
+        private final Path path;
+        private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        private FileChannel channel;
+        private long size;
+        private int rolled;
+
+        private Target(Path path) throws IOException {
+            this.path = path;
+            open();
+        }
+
+        private void write(byte[] data) throws IOException {
+            long pending = size + buffer.position();
+            if (pending > 0 && pending + data.length > maxFileSize) {
+                roll();
+            }
+
+            if (data.length > buffer.remaining()) {
+                flush();
+            }
+            if (data.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(data));
+            } else {
+                buffer.put(data);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                size += channel.write(data);
+            }
+        }
+
+        private void roll() throws IOException {
+            close();
+
+            Path target;
+            do {
+                target = path.resolveSibling(path.getFileName() + "." + ++rolled);
+            } while (exists(target));
+            move(path, target, ATOMIC_MOVE);
+            LOG.info("Rolled " + path + " to " + target);
+
+            open();
+        }
+
+        private void open() throws IOException {
+            channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+            size = channel.size();
+        }
+
+        private void close() throws IOException {
+            flush();
+            channel.force(false);
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.io.*;
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.InvalidPayloadException;
+import org.apache.camel.Message;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.component.file.GenericFile;
+import org.apache.camel.support.ExpressionAdapter;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Checksum of the consumed files, to be used as the key of an idempotent consumer so that a file delivered again with
+ * the same content is skipped before being parsed:<pre>
+ * from("file:" + getWorkingDirectory())
+ *         .idempotentConsumer(fileChecksum(), memoryIdempotentRepository(1000))
+ *         .split(movies()).streaming()
+ *         ...
+ * </pre>
+ * The checksum is computed from the content, not from the name, so a renamed copy is skipped too. The files are hashed
+ * straight from the file system; the other bodies are read into memory first and kept as the new body so that they can
+ * still be parsed afterwards.
+ */
+public final class FileChecksum {
+    // Not a cryptographic hash, the files are trusted, only accidental collisions must be avoided
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private FileChecksum() {
+        // Utility class
+    }
+
+    /**
+     * Creates an expression evaluated as the checksum of the body.
+     *
+     * @return Expression evaluated as an hexadecimal checksum
+     */
+    public static Expression fileChecksum() {
+        return new ExpressionAdapter() {
+            @Override
+            public Object evaluate(Exchange exchange) {
+                try {
+                    return checksum(exchange.getIn());
+                } catch (IOException | InvalidPayloadException e) {
+                    throw new RuntimeCamelException("Cannot compute the checksum of the file", e);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "fileChecksum()";
+            }
+        };
+    }
+
+    private static String checksum(Message in) throws IOException, InvalidPayloadException {
+        Object body = in.getBody();
+        if (body instanceof GenericFile) {
+            body = ((GenericFile<?>) body).getFile();
+        }
+        if (body instanceof File) {
+            return Files.asByteSource((File) body).hash(HASH).toString();
+        }
+
+        byte[] content = in.getMandatoryBody(byte[].class);
+        in.setBody(content);
+        return HASH.hashBytes(content).toString();
+    }
+}
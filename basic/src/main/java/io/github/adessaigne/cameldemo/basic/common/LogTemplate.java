@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+import org.slf4j.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Logs a message built from a template compiled once, an allocation-light replacement of the log EIP for the hot
+ * paths.
+ * <p/>
+ * The template only supports the {@code ${body}} and {@code ${header.Name}} placeholders. It is split into literal
+ * fragments and message accessors when the processor is created, so nothing is evaluated when the log level is
+ * disabled and only the message itself is built otherwise. Like the log EIP, the logger is named after the route:<pre>
+ * from("file:" + getWorkingDirectory())
+ *         .split(movies()).streaming()
+ *         .process(new LogTemplate("${header.Actor} is James Bond in ${header.Movie}."));
+ * </pre>
+ */
+public final class LogTemplate implements Processor {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]*)}");
+    private static final String HEADER = "header.";
+
+    private final String template;
+    private final String[] literals;
+    private final String[] headers;
+    private final ConcurrentMap<String, Logger> loggers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new log template.
+     *
+     * @param template Template of the messages
+     * @throws IllegalArgumentException If the template contains an unsupported placeholder
+     */
+    public LogTemplate(String template) {
+        this.template = checkNotNull(template, "The template must be defined.");
+
+        // literals[i] is followed by the value of headers[i], a null header meaning the body
+        List<String> literals = new ArrayList<>();
+        List<String> headers = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        int start = 0;
+        while (matcher.find()) {
+            String placeholder = matcher.group(1).trim();
+            checkArgument("body".equals(placeholder) || placeholder.startsWith(HEADER),
+                    "Unsupported placeholder in the log template: %s", matcher.group());
+            literals.add(template.substring(start, matcher.start()));
+            headers.add(placeholder.startsWith(HEADER) ? placeholder.substring(HEADER.length()) : null);
+            start = matcher.end();
+        }
+        literals.add(template.substring(start));
+
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.headers = headers.toArray(new String[headers.size()]);
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        String routeId = exchange.getFromRouteId();
+        Logger logger = loggers.computeIfAbsent(routeId != null ? routeId : LogTemplate.class.getName(),
+                name -> getLogger(name));
+        if (logger.isInfoEnabled()) {
+            logger.info(format(exchange.getIn()));
+        }
+    }
+
+    private String format(Message in) {
+        StringBuilder result = new StringBuilder(template.length() + 32);
+        for (int i = 0; i < headers.length; i++) {
+            result.append(literals[i]).append(headers[i] != null ? in.getHeader(headers[i]) : in.getBody());
+        }
+        return result.append(literals[headers.length]).toString();
+    }
+
+    @Override
+    public String toString() {
+        return "LogTemplate[" + template + "]";
+    }
+}
@@ -18,20 +18,66 @@ package io.github.adessaigne.cameldemo.basic.common;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.camel.spi.Registry;
+import com.google.common.collect.ForwardingConcurrentMap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
-import static com.google.common.collect.ImmutableSet.copyOf;
+import static java.util.Collections.unmodifiableMap;
 
-final class MapBasedRegistry implements Registry {
+/**
+ * Camel registry backed by a map.
+ * <p/>
+ * The lookups by type are indexed: the result of each type query is computed once and kept until an entry of that type
+ * is put or removed. The entries must therefore be modified through {@link #asMap()}, the map given to the constructor
+ * must not be modified directly.
+ */
+public final class MapBasedRegistry implements Registry {
+    private final Object lock = new Object();
     private final ConcurrentMap<String, Object> map;
+    private final Map<String, Object> readOnly;
+    private final ConcurrentMap<Class<?>, TypeIndex<?>> index = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> view = new IndexedMap();
+    private final LongAdder nameLookups = new LongAdder();
+    private final LongAdder typeLookups = new LongAdder();
 
-    MapBasedRegistry(ConcurrentMap<String, Object> map) {
+    public MapBasedRegistry(ConcurrentMap<String, Object> map) {
         this.map = map;
+        this.readOnly = unmodifiableMap(map);
+    }
+
+    /**
+     * Gets a view of the registry entries. The modifications done through this view keep the type index up to date.
+     * The key, value and entry collections of the view are read only.
+     *
+     * @return Registry entries
+     */
+    public ConcurrentMap<String, Object> asMap() {
+        return view;
+    }
+
+    /**
+     * Gets the number of lookups by name since the creation of the registry.
+     *
+     * @return Number of lookups by name
+     */
+    public long getNameLookups() {
+        return nameLookups.sum();
+    }
+
+    /**
+     * Gets the number of lookups by type since the creation of the registry.
+     *
+     * @return Number of lookups by type
+     */
+    public long getTypeLookups() {
+        return typeLookups.sum();
     }
 
     @Override
     public Object lookupByName(String name) {
+        nameLookups.increment();
         return map.get(name);
     }
 
@@ -43,18 +89,12 @@ final class MapBasedRegistry implements Registry {
 
     @Override
     public <T> Map<String, T> findByTypeWithName(Class<T> type) {
-        ImmutableMap.Builder<String, T> result = ImmutableMap.builder();
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (type.isInstance(entry.getValue())) {
-                result.put(entry.getKey(), type.cast(entry.getValue()));
-            }
-        }
-        return result.build();
+        return getIndex(type).byName;
     }
 
     @Override
     public <T> Set<T> findByType(Class<T> type) {
-        return copyOf(findByTypeWithName(type).values());
+        return getIndex(type).values;
     }
 
     @Override
@@ -74,4 +114,156 @@ final class MapBasedRegistry implements Registry {
     public <T> Map<String, T> lookupByType(Class<T> type) {
         return findByTypeWithName(type);
     }
+
+    @SuppressWarnings("unchecked")
+    private <T> TypeIndex<T> getIndex(Class<T> type) {
+        typeLookups.increment();
+        TypeIndex<?> result = index.get(type);
+        if (result == null) {
+            // Built under the lock so that a concurrent modification cannot leave a stale index behind
+            synchronized (lock) {
+                result = index.get(type);
+                if (result == null) {
+                    result = new TypeIndex<>(scan(type));
+                    index.put(type, result);
+                }
+            }
+        }
+        return (TypeIndex<T>) result;
+    }
+
+    private <T> ImmutableMap<String, T> scan(Class<T> type) {
+        ImmutableMap.Builder<String, T> result = ImmutableMap.builder();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (type.isInstance(entry.getValue())) {
+                result.put(entry.getKey(), type.cast(entry.getValue()));
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Removes the indexes of all the types of the given values. Must be called while holding the lock.
+     *
+     * @param values Values that have been put or removed
+     */
+    private void invalidate(Object... values) {
+        for (Class<?> type : index.keySet()) {
+            for (Object value : values) {
+                if (type.isInstance(value)) {
+                    index.remove(type);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static final class TypeIndex<T> {
+        private final ImmutableMap<String, T> byName;
+        private final ImmutableSet<T> values;
+
+        private TypeIndex(ImmutableMap<String, T> byName) {
+            this.byName = byName;
+            this.values = ImmutableSet.copyOf(byName.values());
+        }
+    }
+
+    private final class IndexedMap extends ForwardingConcurrentMap<String, Object> {
+        @Override
+        protected ConcurrentMap<String, Object> delegate() {
+            return map;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            synchronized (lock) {
+                Object previous = map.put(key, value);
+                invalidate(previous, value);
+                return previous;
+            }
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ?> entries) {
+            for (Map.Entry<? extends String, ?> entry : entries.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public Object putIfAbsent(String key, Object value) {
+            synchronized (lock) {
+                Object previous = map.putIfAbsent(key, value);
+                if (previous == null) {
+                    invalidate(value);
+                }
+                return previous;
+            }
+        }
+
+        @Override
+        public Object remove(Object key) {
+            synchronized (lock) {
+                Object previous = map.remove(key);
+                invalidate(previous);
+                return previous;
+            }
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            synchronized (lock) {
+                boolean removed = map.remove(key, value);
+                if (removed) {
+                    invalidate(value);
+                }
+                return removed;
+            }
+        }
+
+        @Override
+        public Object replace(String key, Object value) {
+            synchronized (lock) {
+                Object previous = map.replace(key, value);
+                if (previous != null) {
+                    invalidate(previous, value);
+                }
+                return previous;
+            }
+        }
+
+        @Override
+        public boolean replace(String key, Object oldValue, Object newValue) {
+            synchronized (lock) {
+                boolean replaced = map.replace(key, oldValue, newValue);
+                if (replaced) {
+                    invalidate(oldValue, newValue);
+                }
+                return replaced;
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (lock) {
+                map.clear();
+                index.clear();
+            }
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return readOnly.keySet();
+        }
+
+        @Override
+        public Collection<Object> values() {
+            return readOnly.values();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return readOnly.entrySet();
+        }
+    }
 }
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Input stream reading a file through memory mapped windows.
+ * <p/>
+ * The file content is never copied on the heap, except in the buffer given by the reader, and only one window of the
+ * file is mapped at a time so that files larger than the address space or than 2 GB (the limit of a single mapping)
+ * can be read.
+ * <p/>
+ * A window is unmapped as soon as the next one is mapped and when the stream is closed, instead of waiting for the
+ * garbage collector. Otherwise the consumed file could stay mapped after the exchange, and on Windows the file
+ * component could neither move nor delete it. When the JVM doesn't allow the explicit unmapping, the windows are left
+ * to the garbage collector.
+ */
+final class MappedFileInputStream extends InputStream {
+    private static final Logger LOG = getLogger(MappedFileInputStream.class);
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final Unmapper UNMAPPER = createUnmapper();
+
+    private final FileChannel channel;
+    private final long size;
+    private long position;
+    private MappedByteBuffer buffer;
+    private boolean closed;
+
+    /**
+     * Opens a file.
+     *
+     * @param file File to read
+     * @throws IOException If the file cannot be opened
+     */
+    MappedFileInputStream(Path file) throws IOException {
+        this.channel = FileChannel.open(file, READ);
+        this.size = channel.size();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextWindow() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        checkPositionIndexes(offset, offset + length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextWindow()) {
+            return -1;
+        }
+
+        int count = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && nextWindow()) {
+            int step = (int) Math.min(count - skipped, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        long read = buffer != null ? position + buffer.position() : 0;
+        return (int) Math.min(Integer.MAX_VALUE, size - read);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            unmap(buffer);
+            buffer = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * Maps the next window of the file if the current one has been fully read.
+     *
+     * @return {@code false} if the end of the file has been reached
+     * @throws IOException If the file cannot be mapped
+     */
+    private boolean nextWindow() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+        if (buffer != null && buffer.hasRemaining()) {
+            return true;
+        }
+
+        long next = buffer != null ? position + buffer.capacity() : 0;
+        if (next >= size) {
+            return false;
+        }
+        position = next;
+        unmap(buffer);
+        // Never keep a reference to an unmapped window, even if the next one cannot be mapped
+        buffer = null;
+        buffer = channel.map(READ_ONLY, next, Math.min(WINDOW_SIZE, size - next));
+        return true;
+    }
+
+    private static void unmap(ByteBuffer window) {
+        if (window != null && UNMAPPER != null) {
+            try {
+                UNMAPPER.unmap(window);
+            } catch (ReflectiveOperationException e) {
+                LOG.debug("Cannot unmap the window, it is left to the garbage collector", e);
+            }
+        }
+    }
+
+    private static Unmapper createUnmapper() {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            return window -> invokeCleaner.invoke(unsafe, window);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available before Java 9
+        }
+
+        try {
+            // Java 8
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return window -> clean.invoke(cleaner.invoke(window));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Cannot unmap the files explicitly, the mapped windows are left to the garbage collector", e);
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Unmapper {
+        void unmap(ByteBuffer window) throws ReflectiveOperationException;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.*;
+import com.google.common.collect.ImmutableMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Metrics of an exercise: timers (latency histograms in nanoseconds), histograms, counters and gauges.
+ * <p/>
+ * The metrics are created on first use and identified by their name. They are exposed as a JMX MBean, each timer and
+ * histogram giving the {@code count}, {@code mean}, {@code p50}, {@code p99} and {@code max} attributes (in
+ * milliseconds for the timers).
+ */
+public final class Metrics implements DynamicMBean {
+    private static final double NANOS_PER_MILLI = 1000000;
+
+    private final ConcurrentMap<String, Histogram> timers = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Supplier<? extends Number>> gauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * Gets a timer, the recorded values must be in nanoseconds.
+     *
+     * @param name Name of the timer
+     * @return Timer
+     */
+    public Histogram timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Gets a histogram.
+     *
+     * @param name Name of the histogram
+     * @return Histogram
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Gets a counter.
+     *
+     * @param name Name of the counter
+     * @return Counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge with the same name.
+     *
+     * @param name Name of the gauge
+     * @param gauge Supplier of the current value
+     */
+    public void gauge(String name, Supplier<? extends Number> gauge) {
+        gauges.put(name, checkNotNull(gauge, "The gauge must be defined"));
+    }
+
+    /**
+     * Gets a summary of all the metrics, one line per metric.
+     *
+     * @return Summary
+     */
+    public String getSummary() {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, Histogram> entry : timers.entrySet()) {
+            result.append(format("%n\t%s (ms): %s", entry.getKey(), entry.getValue().summary(NANOS_PER_MILLI)));
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            result.append(format("%n\t%s: %s", entry.getKey(), entry.getValue().summary(1)));
+        }
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            result.append(format("%n\t%s: %d", entry.getKey(), entry.getValue().sum()));
+        }
+        for (Map.Entry<String, Supplier<? extends Number>> entry : gauges.entrySet()) {
+            result.append(format("%n\t%s: %s", entry.getKey(), entry.getValue().get()));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Gets the current value of all the metrics, as exposed through JMX.
+     *
+     * @return Values by attribute name
+     */
+    public Map<String, Number> getValues() {
+        ImmutableMap.Builder<String, Number> result = ImmutableMap.builder();
+        for (Map.Entry<String, Histogram> entry : timers.entrySet()) {
+            putValues(result, entry.getKey(), entry.getValue(), NANOS_PER_MILLI);
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            putValues(result, entry.getKey(), entry.getValue(), 1);
+        }
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, Supplier<? extends Number>> entry : gauges.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result.build();
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = getValues().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value.doubleValue();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> values = getValues();
+        AttributeList result = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = values.get(attribute);
+            if (value != null) {
+                result.add(new Attribute(attribute, value.doubleValue()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The metrics are read only (" + attribute.getName() + ")");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : getValues().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "double", name, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Exercise metrics", attributes.toArray(new MBeanAttributeInfo[0]),
+                null, null, null);
+    }
+
+    private static void putValues(ImmutableMap.Builder<String, Number> result, String name, Histogram histogram,
+                                  double scale) {
+        result.put(name + ".count", histogram.getCount());
+        result.put(name + ".mean", histogram.getMean() / scale);
+        result.put(name + ".p50", histogram.getPercentile(50) / scale);
+        result.put(name + ".p99", histogram.getPercentile(99) / scale);
+        result.put(name + ".max", histogram.getMax() / scale);
+    }
+}
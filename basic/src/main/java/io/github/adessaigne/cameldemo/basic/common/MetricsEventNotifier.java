@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.*;
+import org.apache.camel.Exchange;
+import org.apache.camel.management.event.AbstractExchangeEvent;
+import org.apache.camel.management.event.ExchangeCompletedEvent;
+import org.apache.camel.management.event.ExchangeFailedEvent;
+import org.apache.camel.support.EventNotifierSupport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Records the latency of the exchanges of every route in the {@code route.<route>} timers, the failed exchanges in
+ * the {@code route.<route>.failed} counters and the number of messages given by the splitters in the
+ * {@code split.size} histogram.
+ */
+final class MetricsEventNotifier extends EventNotifierSupport {
+    private final Metrics metrics;
+
+    MetricsEventNotifier(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean isEnabled(EventObject event) {
+        return event instanceof ExchangeCompletedEvent || event instanceof ExchangeFailedEvent;
+    }
+
+    @Override
+    public void notify(EventObject event) throws Exception {
+        Exchange exchange = ((AbstractExchangeEvent) event).getExchange();
+        if (exchange.getProperty(Exchange.SPLIT_COMPLETE, false, Boolean.class)) {
+            metrics.histogram("split.size").record(exchange.getProperty(Exchange.SPLIT_SIZE, 0, Integer.class));
+        }
+
+        String routeId = exchange.getFromRouteId();
+        Date created = exchange.getProperty(Exchange.CREATED_TIMESTAMP, Date.class);
+        if (!CompletionTracker.isRoot(exchange) || routeId == null || created == null) {
+            return;
+        }
+
+        long latency = System.currentTimeMillis() - created.getTime();
+        metrics.timer("route." + routeId).record(MILLISECONDS.toNanos(latency));
+        if (event instanceof ExchangeFailedEvent) {
+            metrics.counter("route." + routeId + ".failed").increment();
+        }
+    }
+}
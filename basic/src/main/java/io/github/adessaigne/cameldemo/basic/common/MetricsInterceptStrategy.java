@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.model.ProcessorDefinition;
+import org.apache.camel.processor.DelegateAsyncProcessor;
+import org.apache.camel.spi.InterceptStrategy;
+
+import static org.apache.camel.model.ProcessorDefinitionHelper.getRouteId;
+
+/**
+ * Records the latency of every processor of the routes, in the {@code processor.<route>.<processor>} timers.
+ */
+final class MetricsInterceptStrategy implements InterceptStrategy {
+    private final Metrics metrics;
+
+    MetricsInterceptStrategy(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Processor wrapProcessorInInterceptors(CamelContext context, ProcessorDefinition<?> definition,
+                                                 Processor target, Processor nextTarget) throws Exception {
+        String id = definition.getId() != null ? definition.getId() : definition.getShortName();
+        Histogram timer = metrics.timer("processor." + getRouteId(definition) + "." + id);
+        return new DelegateAsyncProcessor(target) {
+            @Override
+            public boolean process(Exchange exchange, AsyncCallback callback) {
+                long start = System.nanoTime();
+                return super.process(exchange, doneSync -> {
+                    timer.record(System.nanoTime() - start);
+                    callback.done(doneSync);
+                });
+            }
+        };
+    }
+}
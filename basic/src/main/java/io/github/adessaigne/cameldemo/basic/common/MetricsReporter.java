@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.*;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.camel.support.ServiceSupport;
+import org.slf4j.Logger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Exports the {@link Metrics} as a JMX MBean and logs their summary periodically and when stopped.
+ */
+final class MetricsReporter extends ServiceSupport {
+    private static final Logger LOG = getLogger(MetricsReporter.class);
+
+    private final Metrics metrics;
+    private final ObjectName name;
+    private final long period;
+    private final TimeUnit unit;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a new reporter.
+     *
+     * @param metrics Metrics to report
+     * @param name Name of the MBean
+     * @param period Period of the log summary
+     * @param unit Time unit of the period
+     */
+    MetricsReporter(Metrics metrics, String name, long period, TimeUnit unit) throws Exception {
+        this.metrics = metrics;
+        this.name = new ObjectName("io.github.adessaigne.cameldemo:type=Metrics,name=" + ObjectName.quote(name));
+        this.period = period;
+        this.unit = unit;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (!server.isRegistered(name)) {
+            server.registerMBean(metrics, name);
+        }
+
+        scheduler = newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("MetricsReporter").setDaemon(true).build());
+        scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        scheduler.shutdownNow();
+        report();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private void report() {
+        LOG.info("Metrics:" + metrics.getSummary());
+    }
+}
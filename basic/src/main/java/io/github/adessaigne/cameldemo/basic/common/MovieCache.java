@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.sql.*;
+import org.apache.camel.Body;
+import org.apache.camel.Exchange;
+import org.apache.camel.Header;
+import org.apache.camel.support.ServiceSupport;
+import org.slf4j.Logger;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+import static com.google.common.base.Preconditions.*;
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.*;
+import static java.lang.String.format;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Read-through cache of the movie titles by year, in front of the {@code JAMES_BOND} table.
+ * <p/>
+ * The cache is bounded in size and the entries expire after a given time. The route inserting the movies must update
+ * the cache with {@link #update(List)} so that the cached titles stay consistent with the database. It is used as a
+ * bean:<pre>
+ * rest("/bond")
+ *         .get("{Year}/title")
+ *         .to("bean:movies?method=getTitle");
+ * </pre>
+ * The hit and miss counters are logged when the cache is stopped, it can be added to the Camel context as a service
+ * for that.
+ */
+@SuppressWarnings("Guava")
+public final class MovieCache extends ServiceSupport {
+    private static final Logger LOG = getLogger(MovieCache.class);
+    private static final String SQL = "SELECT MOVIE FROM JAMES_BOND WHERE YEAR = ?";
+
+    private final DataSource dataSource;
+    private final LoadingCache<Integer, Optional<String>> titles;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param dataSource Database containing the movies
+     * @param maximumSize Maximum number of cached years
+     * @param timeToLive Time after which a cached year is read again from the database
+     * @param unit Time unit of the time to live
+     */
+    public MovieCache(DataSource dataSource, long maximumSize, long timeToLive, TimeUnit unit) {
+        checkArgument(maximumSize > 0, "The maximum size must be positive (%s).", maximumSize);
+        checkNotNull(unit, "The time unit must be defined");
+
+        this.dataSource = checkNotNull(dataSource, "The data source must be defined.");
+        this.titles = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, unit)
+                .recordStats()
+                .build(new CacheLoader<Integer, Optional<String>>() {
+                    @Override
+                    public Optional<String> load(Integer year) throws SQLException {
+                        return Optional.fromNullable(loadTitle(year));
+                    }
+                });
+    }
+
+    /**
+     * Gets the title of the movie of the given year.
+     *
+     * @param year Year of the movie
+     * @return Movie title or {@code null} if there is no movie for that year
+     * @throws SQLException If the title cannot be read from the database
+     */
+    public String getTitle(@Header(YEAR) Integer year) throws SQLException {
+        checkNotNull(year, "The year must be defined");
+        try {
+            return titles.get(year).orNull();
+        } catch (ExecutionException e) {
+            throw (SQLException) e.getCause();
+        }
+    }
+
+    /**
+     * Updates the cache with movies that have been written into the database.
+     *
+     * @param rows Exchanges of the written movies, with the {@link BondXml#YEAR} and {@link BondXml#MOVIE} headers
+     */
+    public void update(@Body List<Exchange> rows) {
+        for (Exchange row : rows) {
+            put(row.getIn().getHeader(YEAR, Integer.class), row.getIn().getHeader(MOVIE, String.class));
+        }
+    }
+
+    /**
+     * Updates the cache with a movie that has been written into the database.
+     *
+     * @param year Year of the movie
+     * @param title Title of the movie
+     */
+    public void put(int year, String title) {
+        titles.put(year, Optional.fromNullable(title));
+    }
+
+    /**
+     * Gets the statistics (hits, misses, evictions, ...) of the cache.
+     *
+     * @return Cache statistics
+     */
+    public CacheStats getStats() {
+        return titles.stats();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        // Nothing to start
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        CacheStats stats = getStats();
+        LOG.info(format("Movie cache: %d hits, %d misses, %d evictions", stats.hitCount(), stats.missCount(),
+                stats.evictionCount()));
+    }
+
+    private String loadTitle(int year) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SQL)) {
+            statement.setInt(1, year);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString("MOVIE") : null;
+            }
+        }
+    }
+}
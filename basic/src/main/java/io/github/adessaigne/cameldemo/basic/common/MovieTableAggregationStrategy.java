@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.processor.aggregate.AggregationStrategy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.*;
+
+/**
+ * Aggregates the movies into a {@link MovieTable}, which becomes the body of the aggregated exchange.
+ * <p/>
+ * The exchanges can either have a {@link MovieTable} body, whose rows are all appended, or be the messages of the
+ * {@link BondXml#movies()} splitter, giving one row from their {@link BondXml#YEAR}, {@link BondXml#ACTOR} and
+ * {@link BondXml#MOVIE} headers. Unlike the {@link org.apache.camel.processor.aggregate.GroupedExchangeAggregationStrategy}
+ * the exchanges are not retained until the aggregation completes:<pre>
+ * .aggregate(constant(true), new MovieTableAggregationStrategy())
+ * .completionSize(100).completionTimeout(500).forceCompletionOnStop()
+ * .process(new BatchInsert(getDatabase()));
+ * </pre>
+ */
+public final class MovieTableAggregationStrategy implements AggregationStrategy {
+    private final int capacity;
+    private final boolean offHeap;
+
+    /**
+     * Creates a new strategy aggregating into tables on the heap with room for 128 rows.
+     */
+    public MovieTableAggregationStrategy() {
+        this(128, false);
+    }
+
+    /**
+     * Creates a new strategy.
+     *
+     * @param capacity Initial number of rows of the tables
+     * @param offHeap {@code true} to allocate the columns of the tables in direct buffers
+     */
+    public MovieTableAggregationStrategy(int capacity, boolean offHeap) {
+        checkArgument(capacity > 0, "The capacity must be positive (%s).", capacity);
+        this.capacity = capacity;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public Exchange aggregate(Exchange oldExchange, Exchange newExchange) {
+        Exchange result = oldExchange != null ? oldExchange : newExchange;
+        MovieTable table = oldExchange != null ? oldExchange.getIn().getBody(MovieTable.class)
+                : new MovieTable(capacity, offHeap);
+
+        Message in = newExchange.getIn();
+        Object body = in.getBody();
+        if (body instanceof MovieTable) {
+            table.addAll((MovieTable) body);
+        } else {
+            Integer year = in.getHeader(YEAR, Integer.class);
+            checkArgument(year != null, "The movie %s has no year.", in.getHeader(MOVIE));
+            table.add(year, in.getHeader(ACTOR, String.class), in.getHeader(MOVIE, String.class));
+        }
+
+        result.getIn().setBody(table);
+        return result;
+    }
+}
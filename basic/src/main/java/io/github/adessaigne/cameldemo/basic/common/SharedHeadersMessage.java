@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.*;
+import org.apache.camel.Message;
+import org.apache.camel.impl.DefaultMessage;
+import org.apache.camel.util.CaseInsensitiveMap;
+
+/**
+ * Message sharing the headers of its parent message, used for the messages of a splitter that all have the same
+ * headers as the split file plus a few of their own.
+ * <p/>
+ * The shared headers are read through without being copied. The headers set on the message are kept in its own map
+ * and hide the shared ones. The shared headers are only copied into the own map (copy on write) when the whole map is
+ * requested with {@link #getHeaders()} or when a header is removed, and the copies of the message keep sharing them.
+ */
+final class SharedHeadersMessage extends DefaultMessage {
+    private Map<String, Object> shared;
+
+    /**
+     * Creates a new message.
+     *
+     * @param shared Headers of the parent message, they must not be modified afterwards
+     */
+    SharedHeadersMessage(Map<String, Object> shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Takes a read-only snapshot of headers, to be shared by the messages created from them.
+     *
+     * @param headers Headers to share
+     * @return Case insensitive copy of the headers
+     */
+    static Map<String, Object> snapshot(Map<String, Object> headers) {
+        return Collections.unmodifiableMap(new CaseInsensitiveMap(headers));
+    }
+
+    @Override
+    public Object getHeader(String name) {
+        if (shared == null) {
+            return super.getHeader(name);
+        }
+        Map<String, Object> own = super.getHeaders();
+        return own.containsKey(name) ? own.get(name) : shared.get(name);
+    }
+
+    @Override
+    public Object getHeader(String name, Object defaultValue) {
+        Object value = getHeader(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public Object removeHeader(String name) {
+        copyOnWrite();
+        return super.removeHeader(name);
+    }
+
+    @Override
+    public boolean removeHeaders(String pattern, String... excludePatterns) {
+        copyOnWrite();
+        return super.removeHeaders(pattern, excludePatterns);
+    }
+
+    @Override
+    public Map<String, Object> getHeaders() {
+        copyOnWrite();
+        return super.getHeaders();
+    }
+
+    @Override
+    public void setHeaders(Map<String, Object> headers) {
+        shared = null;
+        super.setHeaders(headers);
+    }
+
+    @Override
+    public boolean hasHeaders() {
+        return shared != null && !shared.isEmpty() || super.hasHeaders();
+    }
+
+    @Override
+    public SharedHeadersMessage newInstance() {
+        return new SharedHeadersMessage(null);
+    }
+
+    @Override
+    public void copyFrom(Message that) {
+        if (that == this || !(that instanceof SharedHeadersMessage) || ((SharedHeadersMessage) that).shared == null) {
+            super.copyFrom(that);
+            return;
+        }
+
+        SharedHeadersMessage source = (SharedHeadersMessage) that;
+        setMessageId(source.getMessageId());
+        setBody(source.getBody());
+        setFault(source.isFault());
+        shared = source.shared;
+        super.setHeaders(new CaseInsensitiveMap(source.ownHeaders()));
+        copyAttachments(source);
+    }
+
+    private Map<String, Object> ownHeaders() {
+        return super.getHeaders();
+    }
+
+    private void copyOnWrite() {
+        if (shared != null) {
+            Map<String, Object> headers = new CaseInsensitiveMap(shared);
+            headers.putAll(super.getHeaders());
+            shared = null;
+            super.setHeaders(headers);
+        }
+    }
+}
@@ -18,13 +18,19 @@ package io.github.adessaigne.cameldemo.basic.common;
 
 import java.io.*;
 import java.nio.file.Path;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 
 import static com.google.common.base.Preconditions.*;
+import static com.google.common.base.Throwables.propagateIfPossible;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.*;
 import static java.nio.file.StandardCopyOption.*;
 import static java.util.concurrent.Executors.*;
+import static java.util.concurrent.TimeUnit.*;
 import static org.slf4j.LoggerFactory.getLogger;
 
 final class Simulator {
@@ -51,12 +57,37 @@ final class Simulator {
      *
      * @param delay Delay between 2 file generation
      * @param unit Time unit of the delay between 2 file generation
+     * @return A future of the number of generated files
      */
-    Future<Void> generate(long delay, TimeUnit unit) {
+    Future<Integer> generate(long delay, TimeUnit unit) {
         checkNotNull(unit, "The time unit must be defined");
 
         return executorService.submit(new SimulationTask(directory, delay, unit));
     }
+
+    /**
+     * Generates a high volume of synthetic files.
+     *
+     * @param load Description of the load to generate
+     * @return A future of the number of generated files
+     */
+    Future<Integer> generate(WithLoad load) {
+        checkNotNull(load, "The load must be defined");
+        checkArgument(load.files() >= 0, "The number of files must be positive (%s).", load.files());
+        checkArgument(load.filesPerSecond() > 0, "The number of files per second must be positive (%s).", load.filesPerSecond());
+        checkArgument(load.producers() > 0, "The number of producers must be positive (%s).", load.producers());
+        checkArgument(load.movies() >= 0, "The number of movies must be positive (%s).", load.movies());
+
+        return executorService.submit(new LoadTask(directory, load));
+    }
+
+    /**
+     * Stops the simulator once the submitted simulations are complete.
+     */
+    void shutdown() {
+        executorService.shutdown();
+    }
+
     private static void checkPath(Path directory) {
         File file = directory.toFile();
         checkArgument(file.exists(), "The directory doesn't exist (%s).", directory);
@@ -65,7 +96,7 @@ final class Simulator {
         checkArgument(file.list().length == 0, "The provided directory must be empty (%s).", directory);
     }
 
-    private static final class SimulationTask implements Callable<Void> {
+    private static final class SimulationTask implements Callable<Integer> {
         private final Path directory;
         private final long delay;
         private final TimeUnit unit;
@@ -77,23 +108,127 @@ final class Simulator {
         }
 
         @Override
-        public Void call() throws Exception {
+        public Integer call() throws Exception {
             for (String file : FILES) {
                 unit.sleep(delay);
                 LOG.info("Generating file: " + file);
 
-                // We're creating the file in another directory and then move it atomically.
-                try {
-                    Path temp = createTempFile("tmp-simulator-", ".xml");
-                    copy(Simulator.class.getResourceAsStream(file), temp, REPLACE_EXISTING);
-                    move(temp, directory.resolve(file), ATOMIC_MOVE);
-                } catch (IOException e) {
-                    LOG.error("Cannot generate simulated file", e);
-                    throw e;
+                publish(directory, file, Simulator.class.getResourceAsStream(file));
+            }
+
+            return FILES.length;
+        }
+    }
+
+    private static final class LoadTask implements Callable<Integer> {
+        private final Path directory;
+        private final WithLoad load;
+        private final AtomicInteger nextFile = new AtomicInteger();
+        private long start;
+
+        private LoadTask(Path directory, WithLoad load) {
+            this.directory = directory;
+            this.load = load;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            LOG.info(format("Generating %d files of %d movies (%d files/s, %s profile, %d producers)", load.files(),
+                    load.movies(), load.filesPerSecond(), load.profile(), load.producers()));
+
+            ExecutorService producers = newFixedThreadPool(load.producers());
+            try {
+                start = System.nanoTime();
+                List<Future<Void>> results = new ArrayList<>();
+                for (int i = 0; i < load.producers(); i++) {
+                    results.add(producers.submit(this::produce));
                 }
+                for (Future<Void> result : results) {
+                    result.get();
+                }
+            } catch (ExecutionException e) {
+                propagateIfPossible(e.getCause(), Exception.class);
+                throw e;
+            } finally {
+                producers.shutdownNow();
             }
 
+            LOG.info(format("%d files generated in %d ms", load.files(), NANOSECONDS.toMillis(System.nanoTime() - start)));
+            return load.files();
+        }
+
+        private Void produce() throws Exception {
+            for (int index = nextFile.getAndIncrement(); index < load.files(); index = nextFile.getAndIncrement()) {
+                long delay = start + getScheduledTime(index) - System.nanoTime();
+                if (delay > 0) {
+                    NANOSECONDS.sleep(delay);
+                }
+                publish(directory, format("bond-%08d.xml", index), new ByteArrayInputStream(createDocument(index)));
+            }
             return null;
         }
+
+        /**
+         * Gets the time at which a file must be generated, relative to the start of the simulation.
+         *
+         * @param index Index of the file
+         * @return Time in nanoseconds
+         */
+        private long getScheduledTime(int index) {
+            double rate = load.filesPerSecond();
+            double seconds;
+            switch (load.profile()) {
+                case RAMP:
+                    // count(t) = rate * t^2 / (2 * duration), with duration = 2 * files / rate
+                    seconds = 2 * Math.sqrt((double) index * load.files()) / rate;
+                    break;
+                case BURST:
+                    seconds = Math.floor(index / rate);
+                    break;
+                default:
+                    seconds = index / rate;
+                    break;
+            }
+            return (long) (seconds * SECONDS.toNanos(1));
+        }
+
+        /**
+         * Creates a synthetic James Bond document. The years are unique across all the generated files.
+         *
+         * @param index Index of the file
+         * @return XML content
+         */
+        private byte[] createDocument(int index) {
+            StringBuilder xml = new StringBuilder(64 + 64 * load.movies());
+            xml.append("<bond>\n    <actor>\n        <name>Agent ").append(index).append("</name>\n    </actor>\n    <movies>\n");
+            for (int i = 0; i < load.movies(); i++) {
+                int year = index * load.movies() + i + 1;
+                xml.append("        <movie year=\"").append(year).append("\">\n")
+                        .append("            <title>Movie ").append(year).append("</title>\n")
+                        .append("        </movie>\n");
+            }
+            xml.append("    </movies>\n</bond>\n");
+            return xml.toString().getBytes(UTF_8);
+        }
+    }
+
+    /**
+     * Publishes a file in the directory. The file is created into another directory and then moved atomically, so
+     * that the consumers never see a partial file.
+     *
+     * @param directory Target directory
+     * @param name Name of the file
+     * @param content Content of the file
+     * @throws IOException If the file cannot be published
+     */
+    private static void publish(Path directory, String name, InputStream content) throws IOException {
+        try {
+            Path temp = createTempFile("tmp-simulator-", ".xml");
+            copy(content, temp, REPLACE_EXISTING);
+            move(temp, directory.resolve(name), ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("Cannot generate simulated file", e);
+            throw e;
+        }
     }
 }
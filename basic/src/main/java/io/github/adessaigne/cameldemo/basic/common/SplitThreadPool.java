@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import org.apache.camel.ThreadPoolRejectedPolicy;
+import org.apache.camel.builder.ThreadPoolProfileBuilder;
+import org.apache.camel.spi.ThreadPoolProfile;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Thread pool used to process the split movies in parallel.
+ * <p/>
+ * The pool is registered as a thread pool profile in the Camel context of the exercises annotated with
+ * {@link WithSplitThreadPool}, which also tunes it. The routes use it with:<pre>
+ * .split(movies()).streaming().parallelProcessing().executorServiceRef(SplitThreadPool.ID)
+ * </pre>
+ * Without the {@code streaming()} option the split messages are processed in parallel but the results are aggregated
+ * in the order of the movies, which is required by the order sensitive sinks. When the queue of the pool is full, the
+ * splitting thread processes the message itself, which slows down the splitting instead of rejecting messages.
+ */
+public final class SplitThreadPool {
+    public static final String ID = "splitThreadPool";
+
+    private SplitThreadPool() {
+        // Utility class
+    }
+
+    /**
+     * Creates the thread pool profile.
+     *
+     * @param threads Number of threads, {@code 0} to use one thread per available processor
+     * @param queueSize Maximum number of messages waiting for a thread
+     * @return Thread pool profile
+     */
+    public static ThreadPoolProfile profile(int threads, int queueSize) {
+        checkArgument(threads >= 0, "The number of threads must be positive (%s).", threads);
+        checkArgument(queueSize > 0, "The queue size must be positive (%s).", queueSize);
+
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolProfileBuilder(ID)
+                .poolSize(size)
+                .maxPoolSize(size)
+                .maxQueueSize(queueSize)
+                .rejectedPolicy(ThreadPoolRejectedPolicy.CallerRuns)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Bounded in-memory stage of a pipeline, backed by a SEDA queue.
+ * <p/>
+ * Each stage has its own queue and consumer threads. When the queue is full, the messages are either blocked until
+ * there is room in the queue, which slows down the previous stage, or rejected, which fails the exchange of the
+ * previous stage. A file pipeline is written with:<pre>
+ * Stage parse = stage("parse", 100, 1, BLOCK);
+ * Stage persist = stage("persist", 100, 1, BLOCK);
+ *
+ * from("file:" + getWorkingDirectory())
+ *         .inOut(parse.uri())
+ *         .inOut(persist.uri());
+ * from(parse.uri())
+ *         .split(movies(), new GroupedExchangeAggregationStrategy()).streaming()
+ *         .validate(header(YEAR).isNotNull());
+ * from(persist.uri())
+ *         .process(new BatchInsert(getDatabase()));
+ * </pre>
+ * The messages are sent to the stages with {@code inOut}, so the file route waits for each stage to complete and uses
+ * its result as the input of the next one. A file is only committed once it has been persisted. A failure in any stage fails the exchange of the file, which is then rolled
+ * back and consumed again.
+ * <p/>
+ * The current size and the remaining capacity of every stage queue are part of the exercise metrics
+ * ({@code stage.<name>.size} and {@code stage.<name>.remaining}). Once the files have been consumed, the stages are
+ * stopped in the order of their routes, each stage draining its queue before the next one is stopped.
+ */
+public final class Stage {
+    /**
+     * Policy applied when the queue of a stage is full.
+     */
+    public enum Overflow {
+        /**
+         * Blocks the previous stage until there is room in the queue
+         */
+        BLOCK,
+
+        /**
+         * Fails the exchange of the previous stage
+         */
+        REJECT
+    }
+
+    private final String name;
+    private final int size;
+    private final int consumers;
+    private final Overflow overflow;
+
+    private Stage(String name, int size, int consumers, Overflow overflow) {
+        this.name = name;
+        this.size = size;
+        this.consumers = consumers;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Creates a stage.
+     *
+     * @param name Name of the stage, unique in the exercise
+     * @param size Maximum number of messages waiting in the queue of the stage
+     * @param consumers Number of threads consuming the queue of the stage
+     * @param overflow Policy applied when the queue is full
+     * @return Stage
+     */
+    public static Stage stage(String name, int size, int consumers, Overflow overflow) {
+        checkArgument(name != null && !name.isEmpty(), "The name of the stage must be defined.");
+        checkArgument(size > 0, "The queue size must be positive (%s).", size);
+        checkArgument(consumers > 0, "The number of consumers must be positive (%s).", consumers);
+        checkNotNull(overflow, "The overflow policy must be defined.");
+
+        return new Stage(name, size, consumers, overflow);
+    }
+
+    /**
+     * Gets the name of the stage.
+     *
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the URI of the stage, to be used both by the previous stage and by the route of the stage.
+     *
+     * @return Endpoint URI
+     */
+    public String uri() {
+        return format("seda:%s?size=%d&concurrentConsumers=%d&blockWhenFull=%b", name, size, consumers,
+                overflow == Overflow.BLOCK);
+    }
+
+    @Override
+    public String toString() {
+        return uri();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.concurrent.*;
+import com.google.common.cache.CacheBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bounded dictionary of strings, used to share one instance of the values that are repeated many times, such as the
+ * actor names read from every file.
+ * <p/>
+ * Unlike {@link String#intern()} the number of values is bounded: the least recently used values are evicted when
+ * the dictionary is full, so values of high cardinality don't make it grow forever. An evicted value is simply
+ * shared again from its next occurrence:<pre>
+ * StringDictionary names = new StringDictionary(1024);
+ * String actor = names.intern(reader.getElementText());
+ * </pre>
+ * The dictionary is thread safe.
+ */
+public final class StringDictionary {
+    private final ConcurrentMap<String, String> values;
+
+    /**
+     * Creates a new dictionary.
+     *
+     * @param maximumSize Maximum number of values kept in the dictionary
+     */
+    public StringDictionary(long maximumSize) {
+        checkArgument(maximumSize > 0, "The maximum size must be positive (%s).", maximumSize);
+        this.values = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .<String, String>build()
+                .asMap();
+    }
+
+    /**
+     * Gets the shared instance of a value.
+     *
+     * @param value Value to share, can be {@code null}
+     * @return Instance equal to the value already in the dictionary, or the value itself if it wasn't known
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
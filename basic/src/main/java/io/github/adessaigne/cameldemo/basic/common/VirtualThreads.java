@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import org.apache.camel.spi.ThreadPoolFactory;
+
+/**
+ * Gives access to the virtual thread pool factory.
+ * <p/>
+ * The project targets Java 8, the factory is compiled separately with the {@code virtual-threads} profile on Java 21
+ * and it's loaded by name. It's plugged into a Camel context with:<pre>
+ * if (VirtualThreads.isAvailable()) {
+ *     context.getExecutorServiceManager().setThreadPoolFactory(VirtualThreads.threadPoolFactory());
+ * }
+ * </pre>
+ */
+public final class VirtualThreads {
+    private static final String FACTORY = "io.github.adessaigne.cameldemo.basic.common.VirtualThreadPoolFactory";
+
+    private VirtualThreads() {
+        // Utility class
+    }
+
+    /**
+     * Indicates whether the virtual threads can be used, it requires a Java 21 runtime and a build with the
+     * {@code virtual-threads} profile.
+     *
+     * @return {@code true} if the virtual thread pool factory is available
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Class.forName(FACTORY);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the thread pool factory running every task in its own virtual thread.
+     *
+     * @return Thread pool factory
+     * @throws IllegalStateException If the virtual threads are not available
+     */
+    public static ThreadPoolFactory threadPoolFactory() {
+        try {
+            return Class.forName(FACTORY).asSubclass(ThreadPoolFactory.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("The virtual threads require Java 21 and the virtual-threads profile", e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Consumer;
+import org.apache.camel.component.file.GenericFileEndpoint;
+import org.apache.camel.spi.ScheduledPollConsumerScheduler;
+import org.apache.camel.support.ServiceSupport;
+import org.slf4j.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.file.StandardWatchEventKinds.*;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Scheduler of the file consumers triggered by a {@link WatchService} (inotify on Linux) instead of a fixed polling
+ * interval.
+ * <p/>
+ * The consumer polls its directory as soon as a file is created or moved into it, which is enough for files that are
+ * published atomically like the simulated ones. When the notifications overflow, or when no notification is received
+ * during the scan interval, the consumer polls the directory anyway so that no file is missed. It is enabled on the
+ * working directory with the {@link WithWatchService} annotation, or on any file endpoint with:<pre>
+ * registry.put("watch", new WatchServiceScheduler(10, SECONDS));
+ * ...
+ * from("file:" + directory + "?scheduler=#watch")
+ * </pre>
+ * Each consumer needs its own scheduler.
+ */
+public final class WatchServiceScheduler extends ServiceSupport implements ScheduledPollConsumerScheduler {
+    private static final Logger LOG = getLogger(WatchServiceScheduler.class);
+
+    private final long scanInterval;
+    private final TimeUnit unit;
+    private CamelContext camelContext;
+    private Path directory;
+    private volatile Runnable task;
+    private WatchService watchService;
+    private ExecutorService executorService;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param scanInterval Interval of the full scans done when no notification is received
+     * @param unit Time unit of the scan interval
+     */
+    public WatchServiceScheduler(long scanInterval, TimeUnit unit) {
+        checkArgument(scanInterval > 0, "The scan interval must be positive (%s).", scanInterval);
+        this.scanInterval = scanInterval;
+        this.unit = checkNotNull(unit, "The time unit must be defined");
+    }
+
+    @Override
+    public void onInit(Consumer consumer) {
+        checkArgument(consumer.getEndpoint() instanceof GenericFileEndpoint,
+                "The watch service can only trigger file consumers (%s).", consumer.getEndpoint());
+        GenericFileEndpoint<?> endpoint = (GenericFileEndpoint<?>) consumer.getEndpoint();
+        directory = Paths.get(endpoint.getConfiguration().getDirectory());
+    }
+
+    @Override
+    public void scheduleTask(Runnable task) {
+        this.task = task;
+    }
+
+    @Override
+    public void unscheduleTask() {
+        task = null;
+    }
+
+    @Override
+    public synchronized void startScheduler() {
+        checkState(directory != null, "The scheduler hasn't been initialized by its consumer.");
+        if (executorService != null) {
+            return;
+        }
+
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot watch the directory " + directory, e);
+        }
+        executorService = camelContext.getExecutorServiceManager().newSingleThreadExecutor(this, "WatchService");
+        executorService.submit(this::watch);
+    }
+
+    @Override
+    public synchronized boolean isSchedulerStarted() {
+        return executorService != null;
+    }
+
+    @Override
+    public void setCamelContext(CamelContext camelContext) {
+        this.camelContext = camelContext;
+    }
+
+    @Override
+    public CamelContext getCamelContext() {
+        return camelContext;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        // The watch service is created when the consumer starts the scheduler
+    }
+
+    @Override
+    protected synchronized void doStop() throws Exception {
+        if (executorService != null) {
+            camelContext.getExecutorServiceManager().shutdownNow(executorService);
+            executorService = null;
+        }
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private void watch() {
+        WatchService watchService = this.watchService;
+        // The files published before the registration have not been notified
+        poll();
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.poll(scanInterval, unit);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean changed = key == null;
+            if (key != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        LOG.debug("Too many notifications for {}, scanning the whole directory", directory);
+                        changed = true;
+                    } else if (isCandidate((Path) event.context())) {
+                        changed = true;
+                    }
+                }
+                if (!key.reset()) {
+                    LOG.warn("The directory {} cannot be watched anymore", directory);
+                    return;
+                }
+            }
+            if (changed) {
+                poll();
+            }
+        }
+    }
+
+    private void poll() {
+        Runnable task = this.task;
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Indicates whether a notified file can be consumed. The hidden files, like the {@code .camel} directory, and the
+     * lock files written by the consumer itself are ignored so that the consumer doesn't trigger itself.
+     *
+     * @param name Name of the notified file
+     * @return {@code true} if the file may be consumed
+     */
+    private static boolean isCandidate(Path name) {
+        String file = name.toString();
+        return !file.startsWith(".") && !file.endsWith(".camelLock");
+    }
+}
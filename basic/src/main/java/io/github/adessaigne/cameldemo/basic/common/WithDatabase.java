@@ -25,9 +25,41 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 /**
  * This annotation indicates that the exercise uses a database
+ * <p/>
+ * The database is an in-memory H2 database behind a connection pool. The time spent waiting for a connection and the
+ * number of active connections are part of the exercise metrics.
+ * <p/>
+ * For large datasets, the database can be stored in a file instead, so that only the pages in the H2 cache stay in the
+ * heap:<pre>
+ * &#64;WithDatabase(persistent = true, cacheSize = 64 * 1024)
+ * </pre>
  */
 @Documented
 @Retention(RUNTIME)
 @Target(TYPE)
 public @interface WithDatabase {
+    /**
+     * @return Maximum number of connections of the pool
+     */
+    int maxConnections() default 10;
+
+    /**
+     * @return Maximum time in seconds to wait for a connection when all of them are used
+     */
+    int loginTimeout() default 30;
+
+    /**
+     * @return {@code true} to store the database in a file, {@code false} to keep it in memory
+     */
+    boolean persistent() default false;
+
+    /**
+     * @return Size in KB of the page cache of a persistent database
+     */
+    int cacheSize() default 16 * 1024;
+
+    /**
+     * @return Number of rows fetched at once when reading the content of the database
+     */
+    int fetchSize() default 100;
 }
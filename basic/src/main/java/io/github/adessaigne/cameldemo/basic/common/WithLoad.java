@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * This annotation indicates that the exercise runs with a high volume of synthetic files instead of the 6 James Bond
+ * files. Each synthetic file has the same format as the James Bond files, with unique years.
+ * <p/>
+ * The load is enabled by annotating the class of an exercise, for instance to run the exercise with 10000 files of 20
+ * movies generated by 4 threads at 500 files per second:<pre>
+ * &#64;WithLoad(files = 10000, filesPerSecond = 500, producers = 4, movies = 20)
+ * final class Solution06 extends AbstractExercise {
+ * </pre>
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface WithLoad {
+    /**
+     * @return Total number of files to generate
+     */
+    int files();
+
+    /**
+     * @return Target number of files generated per second
+     */
+    int filesPerSecond() default 100;
+
+    /**
+     * @return Number of threads generating the files
+     */
+    int producers() default 1;
+
+    /**
+     * @return Number of movies in each file
+     */
+    int movies() default 10;
+
+    /**
+     * @return How the files are spread over time
+     */
+    Profile profile() default Profile.CONSTANT;
+
+    enum Profile {
+        /**
+         * The files are generated at a constant rate.
+         */
+        CONSTANT,
+        /**
+         * The rate increases linearly from 0 and reaches {@link #filesPerSecond()} with the last file.
+         */
+        RAMP,
+        /**
+         * All the files of a given second are generated at once at the beginning of that second.
+         */
+        BURST
+    }
+}
@@ -19,7 +19,8 @@ package io.github.adessaigne.cameldemo.basic.solution02;
 import org.apache.camel.builder.RouteBuilder;
 
 import io.github.adessaigne.cameldemo.basic.common.AbstractExercise;
-import org.w3c.dom.Document;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.actor;
 
 /**
  * Your mission: read the file XML content and log the name of each James Bond actor.
@@ -38,8 +39,7 @@ final class Solution02 extends AbstractExercise {
             @Override
             public void configure() throws Exception {
                 from("file:" + getWorkingDirectory())
-                        .convertBodyTo(Document.class)
-                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class))
+                        .setHeader("Actor", actor())
                         .log("James Bond is ${header.Actor}.");
             }
         };
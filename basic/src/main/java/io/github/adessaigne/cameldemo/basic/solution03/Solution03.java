@@ -19,7 +19,9 @@ package io.github.adessaigne.cameldemo.basic.solution03;
 import org.apache.camel.builder.RouteBuilder;
 
 import io.github.adessaigne.cameldemo.basic.common.AbstractExercise;
-import org.w3c.dom.Document;
+import io.github.adessaigne.cameldemo.basic.common.LogTemplate;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movies;
 
 /**
  * Your mission: print the title of each james bond movie along with its actor
@@ -37,11 +39,8 @@ final class Solution03 extends AbstractExercise {
             @Override
             public void configure() throws Exception {
                 from("file:" + getWorkingDirectory())
-                        .convertBodyTo(Document.class)
-                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class))
-                        .split(xpath("/bond/movies/movie"))
-                        .setHeader("Movie", xpath("movie/title/text()", String.class))
-                        .log("${header.Actor} is James Bond in ${header.Movie}.");
+                        .split(movies()).streaming()
+                        .process(new LogTemplate("${header.Actor} is James Bond in ${header.Movie}."));
             }
         };
     }
@@ -16,11 +16,15 @@
  */
 package io.github.adessaigne.cameldemo.basic.solution04;
 
+import java.nio.file.Paths;
 import java.util.*;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.dataformat.csv.CsvDataFormat;
-import org.w3c.dom.Document;
 import io.github.adessaigne.cameldemo.basic.common.AbstractExercise;
+import io.github.adessaigne.cameldemo.basic.common.CsvFileWriter;
+import io.github.adessaigne.cameldemo.basic.common.MovieTable;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movieTable;
 
 /**
  * Your mission: create a CSV file with all the james bond movies with their actor
@@ -38,17 +42,21 @@ final class Solution04 extends AbstractExercise {
             @Override
             public void configure() throws Exception {
                 from("file:" + getWorkingDirectory())
-                        .convertBodyTo(Document.class)
-                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class))
-                        .split(xpath("/bond/movies/movie"))
-                        .setHeader("Movie", xpath("movie/title/text()", String.class)).process(exchange -> {
-                    Map<String, String> data = new LinkedHashMap<>();
-                    data.put("Movie", exchange.getIn().getHeader("Movie", String.class));
-                    data.put("Actor", exchange.getIn().getHeader("Actor", String.class));
-                    exchange.getIn().setBody(data);
+                        // The movies are read in the order of the file into a table, without one message per movie
+                        .transform(movieTable())
+                        .process(exchange -> {
+                            MovieTable table = exchange.getIn().getMandatoryBody(MovieTable.class);
+                            List<Map<String, String>> rows = new ArrayList<>(table.size());
+                            for (int row = 0; row < table.size(); row++) {
+                                Map<String, String> data = new LinkedHashMap<>();
+                                data.put("Movie", table.getMovie(row));
+                                data.put("Actor", table.getActor(row));
+                                rows.add(data);
+                            }
+                            exchange.getIn().setBody(rows);
                         })
                         .marshal(new CsvDataFormat())
-                        .to("file:?fileName=007.csv&fileExist=Append");
+                        .process(new CsvFileWriter(Paths.get("007.csv")));
             }
         };
     }
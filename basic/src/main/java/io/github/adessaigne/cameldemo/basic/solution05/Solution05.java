@@ -19,8 +19,11 @@ package io.github.adessaigne.cameldemo.basic.solution05;
 import java.util.concurrent.*;
 import org.apache.camel.Header;
 import org.apache.camel.builder.RouteBuilder;
-import org.w3c.dom.Document;
 import io.github.adessaigne.cameldemo.basic.common.AbstractExercise;
+import io.github.adessaigne.cameldemo.basic.common.CompiledBean;
+import io.github.adessaigne.cameldemo.basic.common.LogTemplate;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movies;
 
 /**
  * Your mission: use a bean stored in the registry in order to transform data
@@ -41,16 +44,14 @@ final class Solution05 extends AbstractExercise {
             @Override
             public void configure() throws Exception {
                 from("file:" + getWorkingDirectory())
-                        .convertBodyTo(Document.class)
-                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class))
-                        .split(xpath("/bond/movies/movie"))
-                        .setHeader("Movie", xpath("movie/title/text()", String.class)).bean("bean", "transform")
-                        .log("${body}");
+                        .split(movies()).streaming()
+                        .process(new CompiledBean("bean", "transform"))
+                        .process(new LogTemplate("${body}"));
             }
         };
     }
 
-    // Used by Camel using reflection
+    // Called through a generated invoker
     @SuppressWarnings({"unused", "WeakerAccess"})
     public static final class SomeBean {
         public final String transform(@Header("Actor") String actor, @Header("Movie") String movie) {
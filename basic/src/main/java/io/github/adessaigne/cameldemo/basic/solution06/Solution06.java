@@ -16,13 +16,19 @@
  */
 package io.github.adessaigne.cameldemo.basic.solution06;
 
-import java.util.concurrent.ConcurrentMap;
-
 import org.apache.camel.builder.RouteBuilder;
 
 import io.github.adessaigne.cameldemo.basic.common.AbstractExercise;
+import io.github.adessaigne.cameldemo.basic.common.BatchInsert;
+import io.github.adessaigne.cameldemo.basic.common.Stage;
 import io.github.adessaigne.cameldemo.basic.common.WithDatabase;
-import org.w3c.dom.Document;
+import io.github.adessaigne.cameldemo.basic.common.WithWatchService;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movieTable;
+import static io.github.adessaigne.cameldemo.basic.common.FileChecksum.fileChecksum;
+import static io.github.adessaigne.cameldemo.basic.common.Stage.Overflow.BLOCK;
+import static io.github.adessaigne.cameldemo.basic.common.Stage.stage;
+import static org.apache.camel.processor.idempotent.MemoryIdempotentRepository.memoryIdempotentRepository;
 
 /**
  * Your mission: insert the data into a database.
@@ -41,28 +47,34 @@ import org.w3c.dom.Document;
  * </pre>
  */
 @WithDatabase
+@WithWatchService
 final class Solution06 extends AbstractExercise {
     public static void main(String... args) {
         new Solution06().run();
     }
 
-    @Override
-    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
-        registry.put("db", getDatabase());
-    }
-
     @Override
     protected RouteBuilder configureCamelRoutes() {
         return new RouteBuilder() {
             @Override
             public void configure() throws Exception {
+                // The files are picked up, parsed and persisted by different threads
+                Stage parse = stage("parse", 100, 1, BLOCK);
+                Stage persist = stage("persist", 100, 1, BLOCK);
+
+                // The file is only committed once its movies have been persisted
                 from("file:" + getWorkingDirectory())
-                        .convertBodyTo(Document.class)
-                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class))
-                        .split(xpath("/bond/movies/movie"))
-                        .setHeader("Year", xpath("movie/@year", Integer.class))
-                        .setHeader("Movie", xpath("movie/title/text()", String.class))
-                        .to("sql:insert into JAMES_BOND (YEAR, ACTOR, MOVIE) VALUES (:#${header.Year}, :#${header.Actor}, :#${header.Movie})?dataSource=#db");
+                        .idempotentConsumer(fileChecksum(), memoryIdempotentRepository(1000))
+                        .inOut(parse.uri())
+                        .inOut(persist.uri());
+
+                // One table per file, the movies are never turned into messages
+                from(parse.uri())
+                        .transform(movieTable());
+
+                // The table of a file is written in one batch
+                from(persist.uri())
+                        .process(new BatchInsert(getDatabase(), true));
             }
         };
     }
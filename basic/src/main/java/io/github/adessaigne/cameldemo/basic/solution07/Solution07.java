@@ -19,28 +19,56 @@ package io.github.adessaigne.cameldemo.basic.solution07;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.netty4.http.NettyHttpComponent;
 import org.apache.camel.model.rest.RestBindingMode;
+import org.apache.camel.processor.aggregate.GroupedExchangeAggregationStrategy;
 
 import io.github.adessaigne.cameldemo.basic.common.AbstractExercise;
+import io.github.adessaigne.cameldemo.basic.common.ActorStatistics;
+import io.github.adessaigne.cameldemo.basic.common.BatchInsert;
+import io.github.adessaigne.cameldemo.basic.common.MovieCache;
+import io.github.adessaigne.cameldemo.basic.common.SplitThreadPool;
 import io.github.adessaigne.cameldemo.basic.common.WithDatabase;
+import io.github.adessaigne.cameldemo.basic.common.WithSplitThreadPool;
+import io.github.adessaigne.cameldemo.basic.common.WithVirtualThreads;
+import io.github.adessaigne.cameldemo.basic.common.WithWatchService;
 import io.github.adessaigne.cameldemo.basic.common.WithWebService;
-import org.w3c.dom.Document;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movies;
+import static io.github.adessaigne.cameldemo.basic.common.FileChecksum.fileChecksum;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.apache.camel.processor.idempotent.MemoryIdempotentRepository.memoryIdempotentRepository;
 
 /**
  * Your mission: provide a REST web service for accessing James Bond movie titles
  * <p/>
  * The REST request will be "/bond/{year}/title" and is automatically executed at the end of the test.
+ * <p/>
+ * The service runs on the non-blocking Netty HTTP server and the titles are served from the {@link MovieCache}. On
+ * Java 21, the split thread pool, which also runs most of the JDBC inserts, uses virtual threads.
+ * <p/>
+ * The statistics of the actors are maintained by {@link ActorStatistics} as the movies are inserted, and served by
+ * "/bond/actors" and "/bond/actors/{actor}".
  */
 @WithDatabase
+@WithSplitThreadPool
 @WithWebService(port = 1234)
+@WithWatchService
+@WithVirtualThreads
 final class Solution07 extends AbstractExercise {
+    private MovieCache cache;
+    private ActorStatistics statistics;
+
     public static void main(String... args) {
         new Solution07().run();
     }
 
     @Override
     protected void configureRegistry(ConcurrentMap<String, Object> registry) {
-        registry.put("db", getDatabase());
+        cache = new MovieCache(getDatabase(), 1000, 10, MINUTES);
+        registry.put("movies", cache);
+        statistics = new ActorStatistics();
+        registry.put("actors", statistics);
     }
 
     @Override
@@ -49,22 +77,31 @@ final class Solution07 extends AbstractExercise {
             @Override
             public void configure() throws Exception {
                 from("file:" + getWorkingDirectory())
-                        .convertBodyTo(Document.class)
-                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class))
-                        .split(xpath("/bond/movies/movie"))
-                        .setHeader("Year", xpath("movie/@year", Integer.class))
-                        .setHeader("Movie", xpath("movie/title/text()", String.class))
-                        .to("sql:insert into JAMES_BOND (YEAR, ACTOR, MOVIE) VALUES (:#${header.Year}, :#${header.Actor}, :#${header.Movie})?dataSource=#db");
+                        .idempotentConsumer(fileChecksum(), memoryIdempotentRepository(1000))
+                        .split(movies()).streaming().parallelProcessing().executorServiceRef(SplitThreadPool.ID)
+                        .aggregate(constant(true), new GroupedExchangeAggregationStrategy())
+                        .completionSize(100).completionTimeout(500).forceCompletionOnStop()
+                        .process(new BatchInsert(getDatabase(), true))
+                        .bean(cache, "update")
+                        .bean(statistics, "update");
 
+                // The Netty event loops only do the I/O, the lookups run on a bounded pool of worker threads
+                getContext().getComponent("netty4-http", NettyHttpComponent.class).setMaximumPoolSize(16);
                 restConfiguration()
-                        .component("restlet")
+                        .component("netty4-http")
                         .host("localhost")
                         .port(1234)
                         .bindingMode(RestBindingMode.auto);
 
                 rest("/bond")
                         .get("{Year}/title")
-                        .to("sql:select MOVIE from JAMES_BOND where YEAR = :#${header.Year}?dataSource=#db&outputType=SelectOne");
+                        .to("bean:movies?method=getTitle")
+                        .get("actors")
+                        .to("bean:actors?method=getAllStatistics")
+                        .get("actors/{Actor}")
+                        .to("bean:actors?method=getStatistics");
+
+                getContext().addService(cache);
             }
         };
     }
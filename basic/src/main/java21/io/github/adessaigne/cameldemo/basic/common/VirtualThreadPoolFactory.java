@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.basic.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.camel.ThreadPoolRejectedPolicy;
+import org.apache.camel.impl.DefaultThreadPoolFactory;
+import org.apache.camel.spi.ThreadPoolFactory;
+import org.apache.camel.spi.ThreadPoolProfile;
+
+/**
+ * Thread pool factory running the tasks of the Camel thread pool profiles in virtual threads, one per task.
+ * <p/>
+ * This class requires Java 21, it's only compiled with the {@code virtual-threads} profile and it's loaded by
+ * {@link VirtualThreads} when the exercise is annotated with {@link WithVirtualThreads}. The virtual threads keep the
+ * names given by Camel, and the bounds of the thread pool profiles are kept: at most the maximum pool size plus the
+ * maximum queue size tasks are running at the same time, the other ones are handled by the rejected policy of the
+ * profile, so {@link SplitThreadPool} still slows down the splitting when it's full.
+ * <p/>
+ * The cached and scheduled pools keep platform threads. Camel runs long tasks in them, like the aggregation of the
+ * parallel splits which polls its completion queue in a loop: a virtual thread is never preempted, so such a task
+ * would keep its carrier thread busy and starve the other virtual threads.
+ */
+public final class VirtualThreadPoolFactory implements ThreadPoolFactory {
+    private final ThreadPoolFactory platform = new DefaultThreadPoolFactory();
+
+    @Override
+    public ExecutorService newCachedThreadPool(ThreadFactory threadFactory) {
+        return platform.newCachedThreadPool(threadFactory);
+    }
+
+    @Override
+    public ExecutorService newThreadPool(ThreadPoolProfile profile, ThreadFactory threadFactory) {
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(virtual(threadFactory));
+        int maxPoolSize = profile.getMaxPoolSize() != null ? profile.getMaxPoolSize() : Integer.MAX_VALUE;
+        int maxQueueSize = profile.getMaxQueueSize() != null ? profile.getMaxQueueSize() : -1;
+        if (maxQueueSize < 0 || maxPoolSize == Integer.MAX_VALUE) {
+            return executor;
+        }
+        return new BoundedExecutor(executor, maxPoolSize + maxQueueSize, profile.getRejectedPolicy());
+    }
+
+    @Override
+    public ScheduledExecutorService newScheduledThreadPool(ThreadPoolProfile profile, ThreadFactory threadFactory) {
+        return platform.newScheduledThreadPool(profile, threadFactory);
+    }
+
+    /**
+     * Creates a factory of virtual threads named like the threads of the Camel factory. The Camel threads are only
+     * used for their names, they are never started.
+     *
+     * @param threadFactory Camel thread factory
+     * @return Virtual thread factory
+     */
+    private static ThreadFactory virtual(ThreadFactory threadFactory) {
+        return task -> Thread.ofVirtual().name(threadFactory.newThread(task).getName()).unstarted(task);
+    }
+
+    /**
+     * Executor limiting the number of tasks running or waiting in virtual threads.
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+        private final ThreadPoolRejectedPolicy policy;
+
+        private BoundedExecutor(ExecutorService delegate, int permits, ThreadPoolRejectedPolicy policy) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(Math.max(permits, 1));
+            this.policy = policy != null ? policy : ThreadPoolRejectedPolicy.CallerRuns;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (isShutdown()) {
+                // Whatever the policy, a task submitted after the shutdown is never dropped silently
+                throw new RejectedExecutionException("The virtual thread pool is shut down");
+            }
+
+            if (permits.tryAcquire()) {
+                try {
+                    delegate.execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            } else if (policy == ThreadPoolRejectedPolicy.CallerRuns) {
+                task.run();
+            } else if (policy == ThreadPoolRejectedPolicy.Abort) {
+                throw new RejectedExecutionException("Too many tasks in the virtual thread pool");
+            }
+            // The discard policies drop the task, there is no queue to discard the oldest task from
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
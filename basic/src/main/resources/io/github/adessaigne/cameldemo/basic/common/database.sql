@@ -3,4 +3,6 @@ CREATE TABLE JAMES_BOND (
   ACTOR VARCHAR NOT NULL,
   MOVIE VARCHAR NOT NULL,
   PRIMARY KEY (YEAR)
-)
\ No newline at end of file
+);
+CREATE INDEX JAMES_BOND_ACTOR ON JAMES_BOND (ACTOR);
+CREATE INDEX JAMES_BOND_MOVIE ON JAMES_BOND (MOVIE)
\ No newline at end of file
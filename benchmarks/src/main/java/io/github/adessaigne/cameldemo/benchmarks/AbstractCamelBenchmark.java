@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.*;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import com.google.common.io.Resources;
+import io.github.adessaigne.cameldemo.basic.common.AbstractExercise;
+import io.github.adessaigne.cameldemo.basic.common.MapBasedRegistry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Base class of the benchmarks. It starts a {@link DefaultCamelContext} backed by a {@link MapBasedRegistry}, like
+ * the exercises do, and gives a producer template to send messages to the benchmarked routes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractCamelBenchmark {
+    private final MapBasedRegistry registry = new MapBasedRegistry(new ConcurrentHashMap<>());
+    protected DefaultCamelContext context;
+    protected ProducerTemplate template;
+
+    @Setup
+    public void startCamel() throws Exception {
+        configureRegistry(registry.asMap());
+        context = new DefaultCamelContext(registry);
+        context.addRoutes(configureCamelRoutes());
+        context.start();
+        template = context.createProducerTemplate();
+    }
+
+    @TearDown
+    public void stopCamel() throws Exception {
+        template.stop();
+        context.stop();
+    }
+
+    /**
+     * Configures the map used by the Camel registry.
+     *
+     * @param registry Registry to configure
+     */
+    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
+        // No-op, can be override
+    }
+
+    /**
+     * Configures the benchmarked routes.
+     *
+     * @return RouteBuilder that configures the Camel routes
+     */
+    protected abstract RouteBuilder configureCamelRoutes();
+
+    /**
+     * Reads one of the James Bond files used by the simulator.
+     *
+     * @param name Name of the file
+     * @return File content
+     */
+    protected static byte[] readBondFile(String name) {
+        try {
+            return Resources.toByteArray(AbstractExercise.class.getResource(name));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + name, e);
+        }
+    }
+
+    /**
+     * Creates an in-memory database with the James Bond schema.
+     *
+     * @param name Name of the database
+     * @return Database
+     */
+    protected static JdbcConnectionPool createDatabase(String name) {
+        JdbcConnectionPool db = JdbcConnectionPool.create("jdbc:h2:mem:" + name, "sa", "sa");
+        try (Connection connection = db.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(Resources.toString(AbstractExercise.class.getResource("database.sql"), UTF_8));
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Cannot initialize the database", e);
+        }
+        return db;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.camel.Header;
+import org.apache.camel.builder.RouteBuilder;
+import org.openjdk.jmh.annotations.*;
+import com.google.common.collect.ImmutableMap;
+import io.github.adessaigne.cameldemo.basic.common.CompiledBean;
+
+/**
+ * Benchmarks the bean call of the fifth solution against a call through a {@link CompiledBean} and a direct Java call
+ * of the same method.
+ */
+public class BeanBenchmark extends AbstractCamelBenchmark {
+    private static final Map<String, Object> HEADERS = ImmutableMap.of("Actor", "Roger Moore", "Movie", "Moonraker");
+
+    private final TransformBean bean = new TransformBean();
+
+    @Override
+    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
+        registry.put("bean", bean);
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from("direct:bean")
+                        .bean("bean", "transform");
+
+                from("direct:compiled")
+                        .process(new CompiledBean("bean", "transform"));
+            }
+        };
+    }
+
+    @Benchmark
+    public Object beanCall() {
+        return template.requestBodyAndHeaders("direct:bean", null, HEADERS);
+    }
+
+    @Benchmark
+    public Object compiledCall() {
+        return template.requestBodyAndHeaders("direct:compiled", null, HEADERS);
+    }
+
+    @Benchmark
+    public Object directCall() {
+        return bean.transform((String) HEADERS.get("Actor"), (String) HEADERS.get("Movie"));
+    }
+
+    // Same bean as in the fifth solution
+    @SuppressWarnings("WeakerAccess")
+    public static final class TransformBean {
+        public final String transform(@Header("Actor") String actor, @Header("Movie") String movie) {
+            return actor + " played 007 in " + movie;
+        }
+    }
+}
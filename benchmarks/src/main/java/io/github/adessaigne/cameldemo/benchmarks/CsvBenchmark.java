@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.*;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.dataformat.csv.CsvDataFormat;
+import org.openjdk.jmh.annotations.*;
+import io.github.adessaigne.cameldemo.basic.common.CsvFileWriter;
+
+import static java.nio.file.Files.*;
+
+/**
+ * Benchmarks the CSV marshalling of one movie, as done by the fourth solution, and the writing of the marshalled row
+ * into a file: appended by the file component (one open and close per row) or by the {@link CsvFileWriter}.
+ */
+public class CsvBenchmark extends AbstractCamelBenchmark {
+    private final Map<String, String> data = new LinkedHashMap<>();
+    private final Path directory = createDirectory();
+
+    @Setup
+    public void createData() {
+        data.put("Movie", "Moonraker");
+        data.put("Actor", "Roger Moore");
+    }
+
+    @Setup(Level.Iteration)
+    public void clearFiles() throws IOException {
+        try (DirectoryStream<Path> files = newDirectoryStream(directory)) {
+            for (Path file : files) {
+                delete(file);
+            }
+        }
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from("direct:csv")
+                        .marshal(new CsvDataFormat());
+
+                from("direct:append")
+                        .marshal(new CsvDataFormat())
+                        .to("file:" + directory + "?fileName=append.csv&fileExist=Append");
+
+                from("direct:writer")
+                        .marshal(new CsvDataFormat())
+                        .process(new CsvFileWriter(directory.resolve("writer.csv")));
+            }
+        };
+    }
+
+    @Benchmark
+    public Object marshal() {
+        return template.requestBody("direct:csv", data);
+    }
+
+    @Benchmark
+    public void fileAppend() {
+        template.sendBody("direct:append", data);
+    }
+
+    @Benchmark
+    public void bufferedWriter() {
+        template.sendBody("direct:writer", data);
+    }
+
+    private static Path createDirectory() {
+        try {
+            return createTempDirectory(CsvBenchmark.class.getSimpleName());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create the CSV directory", e);
+        }
+    }
+}
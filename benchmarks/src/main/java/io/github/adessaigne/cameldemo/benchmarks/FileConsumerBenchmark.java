@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.openjdk.jmh.annotations.*;
+import io.github.adessaigne.cameldemo.basic.common.WatchServiceScheduler;
+
+import static java.lang.String.format;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Benchmarks the latency between the atomic move of a file into the consumed directory, like the simulator does, and
+ * its processing by the route. The file consumer either polls the directory every 500 ms (the Camel default) or is
+ * triggered by the {@link WatchServiceScheduler}.
+ */
+@OutputTimeUnit(MILLISECONDS)
+public class FileConsumerBenchmark extends AbstractCamelBenchmark {
+    @Param({"poll", "watch"})
+    private String mode;
+
+    private final BlockingQueue<String> consumed = new LinkedBlockingQueue<>();
+    private final AtomicInteger files = new AtomicInteger();
+    private final byte[] file = readBondFile("007-SC.xml");
+    private Path directory;
+    private Path temp;
+
+    @Override
+    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
+        registry.put("watch", new WatchServiceScheduler(10, SECONDS));
+        try {
+            directory = createTempDirectory(getClass().getSimpleName());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create the consumed directory", e);
+        }
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from("file:" + directory + ("watch".equals(mode) ? "?scheduler=#watch" : ""))
+                        .process(exchange -> consumed.add(exchange.getIn().getHeader(Exchange.FILE_NAME_ONLY, String.class)));
+            }
+        };
+    }
+
+    @Setup(Level.Invocation)
+    public void createFile() throws IOException {
+        temp = createTempFile("tmp-benchmark-", ".xml");
+        write(temp, file);
+    }
+
+    @Benchmark
+    public String moveToProcessing() throws Exception {
+        move(temp, directory.resolve(format("bond-%08d.xml", files.incrementAndGet())), ATOMIC_MOVE);
+        String name = consumed.poll(10, SECONDS);
+        if (name == null) {
+            throw new IllegalStateException("The file hasn't been consumed");
+        }
+        return name;
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import javax.management.ObjectName;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.impl.DefaultMessage;
+import org.openjdk.jmh.annotations.*;
+
+import static com.google.common.base.Preconditions.checkState;
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.*;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Benchmarks the headers retained by the messages of the {@link io.github.adessaigne.cameldemo.basic.common.BondXml}
+ * splitter, which share the headers of the file instead of copying them.
+ * <p/>
+ * Each invocation splits {@value #FILES} files of {@value #MOVIES} movies with the usual file headers and keeps all
+ * the messages: as they are split ({@code shared}), as copies made with {@link Message#copy()} ({@code copied}) or
+ * with all the headers copied in a {@link DefaultMessage} like before the sharing ({@code materialized}). The heap
+ * histogram of the live objects is then taken and the {@code TreeMap$Entry} instances, the entries of the Camel
+ * header maps, are printed per message. The shared and copied messages must not retain more than
+ * {@value #MAX_ENTRIES_PER_MESSAGE} entries each, their own headers.
+ * <p/>
+ * The copy-on-write behaviour of the shared headers is checked before the benchmark: a failed check fails the
+ * benchmark:<pre>
+ * java -jar benchmarks/target/benchmarks.jar HeaderBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class HeaderBenchmark extends AbstractCamelBenchmark {
+    static final int FILES = 10;
+    static final int MOVIES = 5000;
+    static final int MAX_ENTRIES_PER_MESSAGE = 4;
+
+    @Param({"shared", "copied", "materialized"})
+    private String messages;
+
+    private final byte[] file = createFile();
+    private final List<Message> retained = new ArrayList<>();
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from("direct:split")
+                        .split(movies()).streaming()
+                        .process(exchange -> retained.add(retain(exchange.getIn())));
+            }
+        };
+    }
+
+    @Setup
+    public void checkCopyOnWrite() {
+        Iterator<?> iterator = (Iterator<?>) movies().evaluate(createFileExchange(), Iterator.class);
+        Message first = (Message) iterator.next();
+        Message second = (Message) iterator.next();
+        Message third = (Message) iterator.next();
+
+        // A header set on a message hides the shared one
+        first.setHeader(Exchange.FILE_NAME, "other.xml");
+        checkHeader(first, Exchange.FILE_NAME, "other.xml");
+        checkHeader(second, Exchange.FILE_NAME, "bond.xml");
+
+        // Removing a header or getting all of them copies the shared headers, the other messages don't see it
+        first.removeHeader(Exchange.FILE_LENGTH);
+        checkHeader(first, Exchange.FILE_LENGTH, null);
+        checkHeader(first, Exchange.FILE_PARENT, "/tmp/bond");
+        second.getHeaders().put(Exchange.FILE_PARENT, "/tmp/other");
+        second.getHeaders().put("Extra", true);
+        checkHeader(second, Exchange.FILE_PARENT, "/tmp/other");
+        checkHeader(third, Exchange.FILE_PARENT, "/tmp/bond");
+        checkHeader(third, Exchange.FILE_LENGTH, (long) file.length);
+        checkHeader(third, "Extra", null);
+        checkState(third.getHeaders().containsKey(Exchange.FILE_NAME), "The shared headers are not copied");
+
+        // A copy keeps the shared headers and can be changed on its own
+        Message next = (Message) iterator.next();
+        Message copy = next.copy();
+        checkHeader(copy, Exchange.FILE_NAME, "bond.xml");
+        checkHeader(copy, ACTOR, "Roger Moore");
+        copy.setHeader(Exchange.FILE_NAME, "copy.xml");
+        copy.removeHeader(Exchange.FILE_LENGTH);
+        checkHeader(next, Exchange.FILE_NAME, "bond.xml");
+        checkHeader(next, Exchange.FILE_LENGTH, (long) file.length);
+
+        // The lookups are case insensitive, for the shared and the own headers
+        checkHeader(next, "camelfilename", "bond.xml");
+        checkHeader(next, "ACTOR", "Roger Moore");
+        checkHeader(copy, "CAMELFILENAME", "copy.xml");
+    }
+
+    @Setup(Level.Invocation)
+    public void clearMessages() {
+        retained.clear();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkRetainedHeaders() throws Exception {
+        int count = retained.size();
+        checkState(count == FILES * MOVIES, "%s messages instead of %s", count, FILES * MOVIES);
+
+        long entries = countLiveInstances("java.util.TreeMap$Entry");
+        double perMessage = (double) entries / count;
+        System.out.println(format("%n%s messages: %d TreeMap$Entry for %d messages (%.1f per message)", messages,
+                entries, count, perMessage));
+        if (!"materialized".equals(messages)) {
+            checkState(perMessage <= MAX_ENTRIES_PER_MESSAGE, "%s header entries retained per message", perMessage);
+        }
+    }
+
+    @Benchmark
+    public int split() {
+        for (int i = 0; i < FILES; i++) {
+            template.send("direct:split", createFileExchange());
+        }
+        return retained.size();
+    }
+
+    private Message retain(Message message) {
+        switch (messages) {
+            case "copied":
+                return message.copy();
+            case "materialized":
+                DefaultMessage result = new DefaultMessage();
+                result.copyFrom(message);
+                return result;
+            default:
+                return message;
+        }
+    }
+
+    private Exchange createFileExchange() {
+        Exchange exchange = new DefaultExchange(context);
+        Message in = exchange.getIn();
+        in.setBody(file);
+        in.setHeader(Exchange.FILE_NAME, "bond.xml");
+        in.setHeader(Exchange.FILE_NAME_ONLY, "bond.xml");
+        in.setHeader(Exchange.FILE_NAME_CONSUMED, "bond.xml");
+        in.setHeader("CamelFileAbsolute", true);
+        in.setHeader("CamelFileAbsolutePath", "/tmp/bond/bond.xml");
+        in.setHeader(Exchange.FILE_PATH, "/tmp/bond/bond.xml");
+        in.setHeader("CamelFileRelativePath", "bond.xml");
+        in.setHeader(Exchange.FILE_PARENT, "/tmp/bond");
+        in.setHeader(Exchange.FILE_LENGTH, (long) file.length);
+        in.setHeader(Exchange.FILE_LAST_MODIFIED, System.currentTimeMillis());
+        return exchange;
+    }
+
+    private static void checkHeader(Message message, String name, Object expected) {
+        Object actual = message.getHeader(name);
+        checkState(Objects.equals(expected, actual), "Header %s is %s instead of %s", name, actual, expected);
+    }
+
+    /**
+     * Counts the live instances of a class with the heap histogram of the JVM, like {@code jcmd GC.class_histogram}.
+     */
+    private static long countLiveInstances(String className) throws Exception {
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[]{null}, new String[]{String[].class.getName()});
+        for (String line : histogram.split("\n")) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length >= 4 && className.equals(columns[3])) {
+                return Long.parseLong(columns[1]);
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] createFile() {
+        StringBuilder xml = new StringBuilder("<bond><actor><name>Roger Moore</name></actor><movies>");
+        for (int year = 1; year <= MOVIES; year++) {
+            xml.append("<movie year=\"").append(year).append("\"><title>Movie ").append(year).append("</title></movie>");
+        }
+        return xml.append("</movies></bond>").toString().getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.camel.builder.RouteBuilder;
+import org.openjdk.jmh.annotations.*;
+import io.github.adessaigne.cameldemo.basic.common.BondXml;
+
+import static com.google.common.base.Preconditions.checkState;
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movies;
+import static java.lang.String.format;
+import static java.lang.management.MemoryType.HEAP;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.*;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Benchmarks the split of large James Bond files, either memory mapped by {@link BondXml} or read through a buffered
+ * stream. The benchmark runs with a 64 MB heap to check that the memory used doesn't depend on the size of the file.
+ * <p/>
+ * Each invocation checks that all the movies of the generated file have been split, and each iteration checks that
+ * the peak of the old generation, where anything retained by the split would end up, stays below
+ * {@value #MAX_RETAINED_MB} MB whatever the size of the file. The peaks of the heap are printed at the end of each
+ * iteration. A failed check fails the benchmark:<pre>
+ * java -jar benchmarks/target/benchmarks.jar LargeFileBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+public class LargeFileBenchmark extends AbstractCamelBenchmark {
+    static final long MAX_RETAINED_MB = 16;
+
+    @Param({"64", "1024"})
+    private int megabytes;
+
+    private final LongAdder movies = new LongAdder();
+    private Path file;
+    private long expectedMovies;
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from("direct:split")
+                        .split(movies()).streaming()
+                        .process(exchange -> movies.increment());
+            }
+        };
+    }
+
+    @Setup
+    public void createFile() throws IOException {
+        file = createTempFile("bond-", ".xml");
+        long limit = megabytes * 1024L * 1024L;
+        try (Writer writer = newBufferedWriter(file, UTF_8)) {
+            writer.write("<bond>\n    <actor>\n        <name>Roger Moore</name>\n    </actor>\n    <movies>\n");
+            long written = 0;
+            for (int year = 1; written < limit; year++) {
+                String movie = "        <movie year=\"" + year + "\">\n"
+                        + "            <title>Movie " + year + "</title>\n"
+                        + "        </movie>\n";
+                writer.write(movie);
+                written += movie.length();
+                expectedMovies++;
+            }
+            writer.write("    </movies>\n</bond>\n");
+        }
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        deleteIfExists(file);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetHeapPeaks() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkHeapPeaks() {
+        long heap = 0;
+        long retained = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == HEAP) {
+                long peak = pool.getPeakUsage().getUsed();
+                heap += peak;
+                if (pool.getName().contains("Old") || pool.getName().contains("Tenured")) {
+                    retained = peak;
+                }
+            }
+        }
+        System.out.println(format("%n%d MB file: peak heap of %d MB, peak old generation of %d MB", megabytes,
+                toMegabytes(heap), toMegabytes(retained)));
+        checkState(toMegabytes(retained) <= MAX_RETAINED_MB,
+                "The old generation reached %s MB while splitting a %s MB file", toMegabytes(retained), megabytes);
+    }
+
+    @Benchmark
+    public long mapped() {
+        template.sendBody("direct:split", file.toFile());
+        return checkMovies();
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        try (InputStream input = new BufferedInputStream(newInputStream(file))) {
+            template.sendBody("direct:split", input);
+        }
+        return checkMovies();
+    }
+
+    private long checkMovies() {
+        long count = movies.sumThenReset();
+        checkState(count == expectedMovies, "%s movies split instead of %s", count, expectedMovies);
+        return count;
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / 1024 / 1024;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.camel.Processor;
+import org.openjdk.jmh.annotations.*;
+import com.google.common.collect.ImmutableMap;
+import io.github.adessaigne.cameldemo.basic.common.MapBasedRegistry;
+
+import static com.google.common.collect.ImmutableSet.copyOf;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Benchmarks the lookups by type of the {@link MapBasedRegistry} against a scan of all the entries, which is how the
+ * lookups were done before the type index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+    @Param({"100", "1000"})
+    private int beans;
+
+    private final ConcurrentMap<String, Object> map = new ConcurrentHashMap<>();
+    private MapBasedRegistry registry;
+
+    @Setup
+    public void fillRegistry() {
+        registry = new MapBasedRegistry(map);
+        for (int i = 0; i < beans; i++) {
+            // One bean out of 10 is a processor, like the few components and processors among many other beans
+            Object bean = i % 10 == 0 ? (Processor) exchange -> { } : "bean-" + i;
+            registry.asMap().put("bean-" + i, bean);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Processor> findByTypeWithName() {
+        return registry.findByTypeWithName(Processor.class);
+    }
+
+    @Benchmark
+    public Set<Processor> findByType() {
+        return registry.findByType(Processor.class);
+    }
+
+    @Benchmark
+    public Map<String, Processor> findByTypeWithNameScan() {
+        return scan(Processor.class);
+    }
+
+    @Benchmark
+    public Set<Processor> findByTypeScan() {
+        return copyOf(scan(Processor.class).values());
+    }
+
+    private <T> Map<String, T> scan(Class<T> type) {
+        ImmutableMap.Builder<String, T> result = ImmutableMap.builder();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (type.isInstance(entry.getValue())) {
+                result.put(entry.getKey(), type.cast(entry.getValue()));
+            }
+        }
+        return result.build();
+    }
+}
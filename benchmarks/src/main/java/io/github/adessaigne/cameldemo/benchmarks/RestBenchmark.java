@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.*;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.model.rest.RestBindingMode;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import com.google.common.io.ByteStreams;
+import io.github.adessaigne.cameldemo.basic.common.MovieCache;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Benchmarks the REST lookup of the seventh solution, from the HTTP request to the response, with a direct SQL query
+ * and through the {@link MovieCache}.
+ */
+public class RestBenchmark extends AbstractCamelBenchmark {
+    private static final int PORT = 1235;
+
+    private JdbcConnectionPool database;
+    private URL url;
+    private URL cachedUrl;
+
+    @Override
+    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
+        database = createDatabase("rest-benchmark");
+        registry.put("db", database);
+        registry.put("movies", new MovieCache(database, 1000, 10, MINUTES));
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                restConfiguration()
+                        .component("restlet")
+                        .host("localhost")
+                        .port(PORT)
+                        .bindingMode(RestBindingMode.auto);
+
+                rest("/bond")
+                        .get("{Year}/title")
+                        .to("sql:select MOVIE from JAMES_BOND where YEAR = :#${header.Year}?dataSource=#db&outputType=SelectOne");
+
+                rest("/cached")
+                        .get("{Year}/title")
+                        .to("bean:movies?method=getTitle");
+            }
+        };
+    }
+
+    @Setup
+    public void insertMovie() throws Exception {
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO JAMES_BOND (YEAR, ACTOR, MOVIE) VALUES (1965, 'Sean Connery', 'Thunderball')");
+        }
+        url = new URL("http://localhost:" + PORT + "/bond/1965/title");
+        cachedUrl = new URL("http://localhost:" + PORT + "/cached/1965/title");
+    }
+
+    @TearDown
+    public void disposeDatabase() {
+        database.dispose();
+    }
+
+    @Benchmark
+    public byte[] lookup() throws IOException {
+        return get(url);
+    }
+
+    @Benchmark
+    public byte[] cachedLookup() throws IOException {
+        return get(cachedUrl);
+    }
+
+    private static byte[] get(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try (InputStream input = connection.getInputStream()) {
+            return ByteStreams.toByteArray(input);
+        }
+    }
+}
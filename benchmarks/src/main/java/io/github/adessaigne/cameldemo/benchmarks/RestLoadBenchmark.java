@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.*;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.netty4.http.NettyHttpComponent;
+import org.apache.camel.model.rest.RestBindingMode;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import com.google.common.io.ByteStreams;
+import io.github.adessaigne.cameldemo.basic.common.MovieCache;
+
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Load test of the REST service of the seventh solution with 1000 concurrent clients, each one keeping its HTTP
+ * connection alive. It compares the blocking Restlet server with the non-blocking Netty server, the throughput gives
+ * the requests per second and the sample time gives the latency percentiles (p0.99 for the 99th percentile).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=1000")
+@Threads(1000)
+public class RestLoadBenchmark extends AbstractCamelBenchmark {
+    private static final int PORT = 1236;
+
+    @Param({"restlet", "netty4-http"})
+    private String component;
+
+    private JdbcConnectionPool database;
+    private URL url;
+
+    @Override
+    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
+        database = createDatabase("rest-load-benchmark");
+        registry.put("movies", new MovieCache(database, 1000, 10, MINUTES));
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                getContext().getComponent("netty4-http", NettyHttpComponent.class).setMaximumPoolSize(16);
+                restConfiguration()
+                        .component(component)
+                        .host("localhost")
+                        .port(PORT)
+                        .bindingMode(RestBindingMode.auto);
+
+                rest("/bond")
+                        .get("{Year}/title")
+                        .to("bean:movies?method=getTitle");
+            }
+        };
+    }
+
+    @Setup
+    public void insertMovie() throws Exception {
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO JAMES_BOND (YEAR, ACTOR, MOVIE) VALUES (1965, 'Sean Connery', 'Thunderball')");
+        }
+        url = new URL("http://localhost:" + PORT + "/bond/1965/title");
+    }
+
+    @TearDown
+    public void disposeDatabase() {
+        database.dispose();
+    }
+
+    @Benchmark
+    public byte[] lookup() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try (InputStream input = connection.getInputStream()) {
+            return ByteStreams.toByteArray(input);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.dataformat.csv.CsvDataFormat;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import io.github.adessaigne.cameldemo.basic.common.GroupedBodyAggregationStrategy;
+import io.github.adessaigne.cameldemo.basic.common.SplitThreadPool;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movies;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.*;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Benchmarks how the parallel split scales with the number of threads of the {@link SplitThreadPool}, in movies per
+ * second. The SQL sink inserts the movies in any order while the CSV sink keeps the order of the file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@OperationsPerInvocation(SplitBenchmark.MOVIES)
+public class SplitBenchmark extends AbstractCamelBenchmark {
+    static final int MOVIES = 1000;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private final byte[] file = createFile();
+    private JdbcConnectionPool database;
+    private Path directory;
+
+    @Override
+    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
+        database = createDatabase("split-benchmark");
+        registry.put("db", database);
+        try {
+            directory = createTempDirectory(getClass().getSimpleName());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create the CSV directory", e);
+        }
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                getContext().getExecutorServiceManager().registerThreadPoolProfile(SplitThreadPool.profile(threads, 1000));
+
+                from("direct:sql")
+                        .split(movies()).streaming().parallelProcessing().executorServiceRef(SplitThreadPool.ID)
+                        .to("sql:insert into JAMES_BOND (YEAR, ACTOR, MOVIE) VALUES (:#${header.Year}, :#${header.Actor}, :#${header.Movie})?dataSource=#db");
+
+                from("direct:csv")
+                        .split(movies(), new GroupedBodyAggregationStrategy())
+                        .parallelProcessing().executorServiceRef(SplitThreadPool.ID)
+                        .process(exchange -> {
+                            Map<String, String> data = new LinkedHashMap<>();
+                            data.put("Movie", exchange.getIn().getHeader("Movie", String.class));
+                            data.put("Actor", exchange.getIn().getHeader("Actor", String.class));
+                            exchange.getIn().setBody(data);
+                        })
+                        .end()
+                        .marshal(new CsvDataFormat())
+                        .to("file:" + directory + "?fileName=007.csv&fileExist=Append");
+            }
+        };
+    }
+
+    @Setup(Level.Invocation)
+    public void clearDatabase() throws Exception {
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM JAMES_BOND");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCsv() throws IOException {
+        deleteIfExists(directory.resolve("007.csv"));
+    }
+
+    @TearDown
+    public void disposeDatabase() {
+        database.dispose();
+    }
+
+    @Benchmark
+    public void sqlSink() {
+        template.sendBody("direct:sql", file);
+    }
+
+    @Benchmark
+    public void csvSink() {
+        template.sendBody("direct:csv", file);
+    }
+
+    private static byte[] createFile() {
+        StringBuilder xml = new StringBuilder("<bond><actor><name>Roger Moore</name></actor><movies>");
+        for (int year = 1; year <= MOVIES; year++) {
+            xml.append("<movie year=\"").append(year).append("\"><title>Movie ").append(year).append("</title></movie>");
+        }
+        return xml.append("</movies></bond>").toString().getBytes(UTF_8);
+    }
+}
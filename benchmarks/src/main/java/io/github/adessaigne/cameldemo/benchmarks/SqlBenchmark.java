@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultExchange;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import com.google.common.collect.ImmutableMap;
+import io.github.adessaigne.cameldemo.basic.common.BatchInsert;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Benchmarks the insertion of movies into the {@code JAMES_BOND} table, in rows per second: one {@code sql:}
+ * statement per row against one {@link BatchInsert} for all the rows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@OperationsPerInvocation(SqlBenchmark.ROWS)
+public class SqlBenchmark extends AbstractCamelBenchmark {
+    static final int ROWS = 100;
+
+    private final AtomicInteger year = new AtomicInteger();
+    private JdbcConnectionPool database;
+
+    @Override
+    protected void configureRegistry(ConcurrentMap<String, Object> registry) {
+        database = createDatabase("sql-benchmark");
+        registry.put("db", database);
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from("direct:row")
+                        .to("sql:insert into JAMES_BOND (YEAR, ACTOR, MOVIE) VALUES (:#${header.Year}, :#${header.Actor}, :#${header.Movie})?dataSource=#db");
+
+                from("direct:batch")
+                        .process(new BatchInsert(database));
+            }
+        };
+    }
+
+    @Setup(Level.Iteration)
+    public void clearDatabase() throws Exception {
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM JAMES_BOND");
+        }
+        year.set(0);
+    }
+
+    @TearDown
+    public void disposeDatabase() {
+        database.dispose();
+    }
+
+    @Benchmark
+    public void perRow() {
+        for (int i = 0; i < ROWS; i++) {
+            template.sendBodyAndHeaders("direct:row", null, nextRow());
+        }
+    }
+
+    @Benchmark
+    public void batch() {
+        List<Exchange> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Exchange exchange = new DefaultExchange(context);
+            exchange.getIn().setHeaders(nextRow());
+            rows.add(exchange);
+        }
+        template.sendBody("direct:batch", rows);
+    }
+
+    private Map<String, Object> nextRow() {
+        int value = year.incrementAndGet();
+        return ImmutableMap.of("Year", value, "Actor", "Roger Moore", "Movie", "Movie " + value);
+    }
+}
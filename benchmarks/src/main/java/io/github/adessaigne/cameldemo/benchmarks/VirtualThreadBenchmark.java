@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.*;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.builder.ThreadPoolProfileBuilder;
+import org.openjdk.jmh.annotations.*;
+import io.github.adessaigne.cameldemo.basic.common.VirtualThreads;
+
+import static java.lang.String.format;
+import static java.nio.file.Files.readAllLines;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Benchmarks 10 000 concurrent I/O bound exchanges with platform threads and with virtual threads. Each exchange
+ * waits 10 ms, like a JDBC insert or a REST lookup, in a Camel thread pool large enough to run all of them at the
+ * same time.
+ * <p/>
+ * The score is the time to complete the 10 000 exchanges. The heap allocations are given by the {@code gc} profiler
+ * and the peak number of threads and resident memory of the benchmark JVM are printed at the end of each trial:<pre>
+ * java -jar benchmarks/target/benchmarks.jar VirtualThreadBenchmark -prof gc
+ * </pre>
+ * The virtual threads require Java 21 and a build with the {@code virtual-threads} profile.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class VirtualThreadBenchmark extends AbstractCamelBenchmark {
+    static final int EXCHANGES = 10000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private final List<Integer> exchanges = createExchanges();
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                if ("virtual".equals(threads)) {
+                    getContext().getExecutorServiceManager().setThreadPoolFactory(VirtualThreads.threadPoolFactory());
+                }
+                getContext().getExecutorServiceManager().registerThreadPoolProfile(new ThreadPoolProfileBuilder("io")
+                        .poolSize(EXCHANGES)
+                        .maxPoolSize(EXCHANGES)
+                        .maxQueueSize(0)
+                        .build());
+
+                from("direct:io")
+                        .split(body()).parallelProcessing().executorServiceRef("io")
+                        .process(exchange -> MILLISECONDS.sleep(10));
+            }
+        };
+    }
+
+    @Benchmark
+    public Object concurrentExchanges() {
+        return template.requestBody("direct:io", exchanges);
+    }
+
+    @TearDown
+    public void printFootprint() throws IOException {
+        String rss = "unknown";
+        for (String line : readAllLines(Paths.get("/proc/self/status"))) {
+            if (line.startsWith("VmHWM:")) {
+                rss = line.substring("VmHWM:".length()).trim();
+            }
+        }
+        System.out.println(format("%n%s threads: peak of %d threads, peak resident memory of %s", threads,
+                ManagementFactory.getThreadMXBean().getPeakThreadCount(), rss));
+    }
+
+    private static List<Integer> createExchanges() {
+        List<Integer> result = new ArrayList<>(EXCHANGES);
+        for (int i = 0; i < EXCHANGES; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+}
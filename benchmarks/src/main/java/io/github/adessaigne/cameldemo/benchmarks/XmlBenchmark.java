@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.adessaigne.cameldemo.benchmarks;
+
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.converter.jaxp.XmlConverter;
+import org.apache.camel.processor.aggregate.GroupedExchangeAggregationStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import io.github.adessaigne.cameldemo.basic.common.MovieTableAggregationStrategy;
+
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movieTable;
+import static io.github.adessaigne.cameldemo.basic.common.BondXml.movies;
+
+/**
+ * Benchmarks the XML stages of the solutions: DOM conversion, XPath header extraction and movie splitting with both
+ * XPath and the streaming {@link io.github.adessaigne.cameldemo.basic.common.BondXml} expressions.
+ * <p/>
+ * The staging of the movies before a batch is measured by grouping the split exchanges, by aggregating the split
+ * messages into a {@link io.github.adessaigne.cameldemo.basic.common.MovieTable} and by reading the file straight into
+ * the table, run with {@code -prof gc} to compare the allocations.
+ */
+public class XmlBenchmark extends AbstractCamelBenchmark {
+    private final byte[] file = readBondFile("007-RM.xml");
+    private Document document;
+
+    @Setup
+    public void parseDocument() throws Exception {
+        document = new XmlConverter().toDOMDocument(file, null);
+    }
+
+    @Override
+    protected RouteBuilder configureCamelRoutes() {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from("direct:dom")
+                        .convertBodyTo(Document.class);
+
+                from("direct:xpath")
+                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class));
+
+                from("direct:splitXPath")
+                        .convertBodyTo(Document.class)
+                        .setHeader("Actor", xpath("/bond/actor/name/text()", String.class))
+                        .split(xpath("/bond/movies/movie"))
+                        .setHeader("Year", xpath("movie/@year", Integer.class))
+                        .setHeader("Movie", xpath("movie/title/text()", String.class));
+
+                from("direct:splitStax")
+                        .split(movies()).streaming()
+                        .setProperty("Done", constant(true));
+
+                from("direct:groupedExchanges")
+                        .split(movies(), new GroupedExchangeAggregationStrategy()).streaming()
+                        .setProperty("Done", constant(true));
+
+                from("direct:splitMovieTable")
+                        .split(movies(), new MovieTableAggregationStrategy()).streaming()
+                        .setProperty("Done", constant(true));
+
+                from("direct:movieTable")
+                        .transform(movieTable());
+
+                from("direct:offHeapMovieTable")
+                        .transform(movieTable(true));
+            }
+        };
+    }
+
+    @Benchmark
+    public Object domConversion() {
+        return template.requestBody("direct:dom", file);
+    }
+
+    @Benchmark
+    public Object xpathHeader() {
+        return template.requestBody("direct:xpath", document);
+    }
+
+    @Benchmark
+    public Object splitWithXPath() {
+        return template.requestBody("direct:splitXPath", file);
+    }
+
+    @Benchmark
+    public Object splitWithStax() {
+        return template.requestBody("direct:splitStax", file);
+    }
+
+    @Benchmark
+    public Object stageGroupedExchanges() {
+        return template.requestBody("direct:groupedExchanges", file);
+    }
+
+    @Benchmark
+    public Object stageSplitMovieTable() {
+        return template.requestBody("direct:splitMovieTable", file);
+    }
+
+    @Benchmark
+    public Object stageMovieTable() {
+        return template.requestBody("direct:movieTable", file);
+    }
+
+    @Benchmark
+    public Object stageOffHeapMovieTable() {
+        return template.requestBody("direct:offHeapMovieTable", file);
+    }
+}